@@ -0,0 +1,89 @@
+package com.locusenergy.homework.benchmarks;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.dispatch.NearestCarDispatchStrategy;
+import com.locusenergy.homework.internal.ElevatorFactory;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of Building.callElevatorAsync() for banks of different size. Elevators run on a discrete-event scheduler,
+ * which is advanced by one elevator step before every call, so the bank keeps moving and dispatch sees a realistic
+ * mix of idle and moving cars. The advance runs in an invocation-level setup and is not measured, so the score is
+ * the call and the selection of an elevator only. An invocation-level setup has a small cost of its own, which JMH
+ * adds to calls this short.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private static final int NUMBER_OF_FLOORS = 100;
+    private static final int STEP_MILLIS = 100;
+    private static final int CALLS_COUNT = 1024;
+
+    @Param({"6", "60", "600"})
+    public int elevatorsCount;
+
+    private DiscreteEventScheduler scheduler;
+    private Building building;
+    private final int[] floors = new int[CALLS_COUNT];
+    private final Direction[] directions = new Direction[CALLS_COUNT];
+    private int next;
+    private CompletableFuture<Elevator> lastCall;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        scheduler = new DiscreteEventScheduler();
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        for (int i = 0; i < elevatorsCount; i++) {
+            int floor = random.nextInt(NUMBER_OF_FLOORS) + 1;
+            elevators.add(ElevatorFactory.createElevator("Elevator " + (i + 1), floor, 1, NUMBER_OF_FLOORS, scheduler));
+        }
+        // call times are measured on the scheduler's clock, which the elevators run on
+        building = new Building(NUMBER_OF_FLOORS, elevators, new NearestCarDispatchStrategy(), scheduler);
+        for (int i = 0; i < CALLS_COUNT; i++) {
+            floors[i] = random.nextInt(NUMBER_OF_FLOORS) + 1;
+            directions[i] = random.nextBoolean() ? Direction.UP : Direction.DOWN;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void advance() {
+        scheduler.runFor(STEP_MILLIS);
+        if (lastCall != null && !lastCall.isDone()) {
+            // all cars are busy going the other way. do not let the queue of pending calls grow forever
+            scheduler.runUntilIdle();
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<Elevator> callElevator() {
+        int i = next++ & (CALLS_COUNT - 1);
+        lastCall = building.callElevatorAsync(floors[i], directions[i]);
+        return lastCall;
+    }
+}
@@ -0,0 +1,77 @@
+package com.locusenergy.homework.benchmarks;
+
+import com.locusenergy.homework.internal.FloorSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stop set operations as the elevator does them on every step: add a request, check the current floor, look for
+ * the next stop up and down, remove the stop. TreeSet is the structure FloorSet replaced, kept here for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloorSetBenchmark {
+
+    private static final int NUMBER_OF_FLOORS = 100;
+    private static final int FLOORS_COUNT = 1024;
+
+    private final FloorSet floorSet = new FloorSet(1, NUMBER_OF_FLOORS);
+    private final TreeSet<Integer> treeSet = new TreeSet<Integer>();
+    private final int[] floors = new int[FLOORS_COUNT];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < FLOORS_COUNT; i++) {
+            floors[i] = random.nextInt(NUMBER_OF_FLOORS) + 1;
+        }
+        // a few stops are always there, like in a busy elevator
+        for (int i = 0; i < 10; i++) {
+            floorSet.add(floors[i]);
+            treeSet.add(floors[i]);
+        }
+    }
+
+    @Benchmark
+    public int floorSet() {
+        int floor = floors[next++ & (FLOORS_COUNT - 1)];
+        boolean added = floorSet.add(floor);
+        int result = floorSet.contains(floor + 1) ? 1 : 0;
+        result += floorSet.higher(floor) + floorSet.lower(floor);
+        if (added) {
+            floorSet.remove(floor);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int treeSet() {
+        int floor = floors[next++ & (FLOORS_COUNT - 1)];
+        boolean added = treeSet.add(floor);
+        int result = treeSet.contains(floor + 1) ? 1 : 0;
+        Integer higher = treeSet.higher(floor);
+        Integer lower = treeSet.lower(floor);
+        result += (higher == null ? FloorSet.NONE : higher) + (lower == null ? FloorSet.NONE : lower);
+        if (added) {
+            treeSet.remove(floor);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package com.locusenergy.homework.benchmarks;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.internal.ElevatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on Elevator.requestFloor() from several threads, while the elevator's own thread keeps moving it.
+ * Change the number of threads with -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class RequestFloorBenchmark {
+
+    private static final int NUMBER_OF_FLOORS = 100;
+
+    private Elevator elevator;
+
+    @Setup
+    public void setUp() {
+        elevator = ElevatorFactory.createElevator("Elevator 1", 1, 1, NUMBER_OF_FLOORS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        elevator.shutdown();
+    }
+
+    @Benchmark
+    public void requestFloor() {
+        elevator.requestFloor(ThreadLocalRandom.current().nextInt(NUMBER_OF_FLOORS) + 1);
+    }
+}
@@ -0,0 +1,292 @@
+package com.locusenergy.homework;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator which takes a slow (or throwing) FloorListener off the elevator's path.
+ * <p>
+ * {@link #floorVisited(int)} only puts the floor into a bounded ring buffer. A separate daemon thread takes
+ * everything accumulated so far and hands it to the delegate in one {@link FloorListener#floorsVisited(int[], int)}
+ * call. Exceptions thrown by the delegate are logged and do not stop the delivery. A delegate which only implements
+ * {@link FloorListener#floorVisited(int)} gets the floors one by one, so a failure at one floor does not lose the
+ * floors after it. When a delegate with its own batch method throws, there is no telling how far it got, so the whole
+ * batch is counted as dropped.
+ * <p>
+ * Sample usage:
+ * <pre>
+ *    elevator.setFloorListener(new AsyncFloorListener(listener, 1024, OverflowPolicy.DROP_OLDEST));
+ * </pre>
+ */
+public class AsyncFloorListener implements FloorListener {
+
+    private final static Logger LOG = Logger.getLogger(AsyncFloorListener.class);
+    private final static AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * What to do with a new floor when the buffer is full, i.e. when the delegate cannot keep up.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Forget the new floor.
+         */
+        DROP_NEWEST,
+        /**
+         * Forget the oldest undelivered floor to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Wait until the delegate makes room. This slows the elevator down to the speed of the delegate.
+         */
+        BLOCK
+    }
+
+    private final FloorListener delegate;
+    // false if the delegate has its own floorsVisited(), which must be given whole batches
+    private final boolean deliverOneByOne;
+    private final OverflowPolicy overflowPolicy;
+
+    // ring buffer. guarded by lock
+    private final int[] buffer;
+    private int head;
+    private int size;
+    private long droppedCount;
+    private boolean delivering;
+    private boolean closed;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition delivered = lock.newCondition();
+    private final Thread thread;
+
+    /**
+     * @param delegate       listener to deliver floors to
+     * @param capacity       maximum number of undelivered floors
+     * @param overflowPolicy what to do when there are already capacity undelivered floors
+     */
+    public AsyncFloorListener(FloorListener delegate, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0. Given value: " + capacity);
+        }
+        this.delegate = delegate;
+        this.deliverOneByOne = !overridesBatchMethod(delegate);
+        this.overflowPolicy = overflowPolicy;
+        this.buffer = new int[capacity];
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                deliverUntilClosed();
+            }
+        }, "floor-listener-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void floorVisited(int floor) {
+        lock.lock();
+        try {
+            if (closed) {
+                droppedCount++;
+                return;
+            }
+            if (size == buffer.length) {
+                if (!makeRoom()) {
+                    droppedCount++;
+                    return;
+                }
+            }
+            buffer[(head + size) % buffer.length] = floor;
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called with the lock held and a full buffer. An interrupted caller gets its interrupt flag back and
+     * drops the floor, so that an elevator thread stuck here can still be shut down.
+     *
+     * @return false if the new floor must be dropped.
+     */
+    private boolean makeRoom() {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                head = (head + 1) % buffer.length;
+                size--;
+                droppedCount++;
+                return true;
+            case BLOCK:
+                try {
+                    while (size == buffer.length && !closed) {
+                        notFull.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return !closed;
+            default:
+                return false;
+        }
+    }
+
+    private void deliverUntilClosed() {
+        int[] batch = new int[buffer.length];
+        while (true) {
+            int count;
+            lock.lock();
+            try {
+                try {
+                    while (size == 0 && !closed) {
+                        notEmpty.await();
+                    }
+                } catch (InterruptedException e) {
+                    // only shutdown() interrupts this thread
+                    stop();
+                    return;
+                }
+                if (size == 0) {
+                    delivered.signalAll();
+                    return;
+                }
+                count = size;
+                for (int i = 0; i < count; i++) {
+                    batch[i] = buffer[(head + i) % buffer.length];
+                }
+                head = (head + count) % buffer.length;
+                size = 0;
+                delivering = true;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            long failed = deliver(batch, count);
+            lock.lock();
+            try {
+                droppedCount += failed;
+                delivering = false;
+                if (size == 0) {
+                    delivered.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return number of floors the delegate failed to process.
+     */
+    private long deliver(int[] batch, int count) {
+        if (!deliverOneByOne) {
+            try {
+                delegate.floorsVisited(batch, count);
+                return 0;
+            } catch (RuntimeException e) {
+                LOG.error("Floor listener " + delegate + " failed to process " + count + " floors", e);
+                return count;
+            }
+        }
+        long failed = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                delegate.floorVisited(batch[i]);
+            } catch (RuntimeException e) {
+                LOG.error("Floor listener " + delegate + " failed at floor " + batch[i], e);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private static boolean overridesBatchMethod(FloorListener listener) {
+        try {
+            return listener.getClass().getMethod("floorsVisited", int[].class, int.class).getDeclaringClass()
+                    != FloorListener.class;
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Waits until everything accepted so far is delivered to the delegate.
+     *
+     * @return false if the timeout expired first.
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (size > 0 || delivering) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = delivered.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting floors. Floors already in the buffer are still delivered, then the delivery thread stops.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting floors and drops the ones which are not delivered yet. Wakes up callers blocked on a full
+     * buffer and interrupts the delivery thread, so a delegate stuck in an interruptible wait gets out too.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            stop();
+        } finally {
+            lock.unlock();
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void stop() {
+        closed = true;
+        droppedCount += size;
+        size = 0;
+        notEmpty.signal();
+        notFull.signalAll();
+        delivered.signalAll();
+    }
+
+    /**
+     * @return number of floors which were not delivered because of overflow, because the listener failed on them
+     *         or because the listener was closed.
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,86 +1,430 @@
 package com.locusenergy.homework;
 
+import com.locusenergy.homework.dispatch.NearestCarDispatchStrategy;
+import com.locusenergy.homework.internal.ElevatorTrace;
+import com.locusenergy.homework.metrics.BuildingMetrics;
+import com.locusenergy.homework.metrics.ElevatorMetrics;
+import com.locusenergy.homework.metrics.MetricsSnapshot;
+import com.locusenergy.homework.simulation.RealTimeClock;
+import com.locusenergy.homework.simulation.Ticker;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-
-import static com.locusenergy.homework.Direction.DOWN;
-import static com.locusenergy.homework.Direction.UP;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 public class Building implements ElevatorController {
 
+    private final static Logger LOG = Logger.getLogger(Building.class);
+
     private final Set<Elevator> elevators;
     private final int numberOfFloors;
+    private final Ticker ticker;
+
+    private final List<GroupDispatcher> dispatchers = new ArrayList<GroupDispatcher>();
+    // groups serving each floor, by floor number. calls go to one of them, see dispatcherFor()
+    private final GroupDispatcher[][] dispatchersByFloor;
+    private final BuildingMetrics metrics = new BuildingMetrics();
 
     /**
+     * Creates a building which sends the nearest available elevator to every call. Elevators serving the same
+     * floors make a group, see {@link #Building(int, List, Ticker)}.
+     *
      * @param numberOfFloors Number of floors must be greater than 0
      * @param elevators      elevators set. can be empty.
+     * @see NearestCarDispatchStrategy
      */
     public Building(int numberOfFloors, Set<Elevator> elevators) {
+        this(numberOfFloors, groupByFloors(elevators), RealTimeClock.INSTANCE);
+    }
+
+    /**
+     * @param numberOfFloors   Number of floors must be greater than 0
+     * @param elevators        elevators set. can be empty.
+     * @param dispatchStrategy decides which elevator takes each call. must not be shared with other buildings.
+     * @throws IllegalArgumentException if the elevators serve different floors. Use elevator groups then.
+     */
+    public Building(int numberOfFloors, Set<Elevator> elevators, DispatchStrategy dispatchStrategy) {
+        this(numberOfFloors, elevators, dispatchStrategy, RealTimeClock.INSTANCE);
+    }
+
+    /**
+     * @param numberOfFloors   Number of floors must be greater than 0
+     * @param elevators        elevators set. can be empty.
+     * @param dispatchStrategy decides which elevator takes each call. must not be shared with other buildings.
+     * @param ticker           time base of the elevators: the clock they were created with, or their scheduler.
+     * @throws IllegalArgumentException if the elevators serve different floors. Use elevator groups then.
+     */
+    public Building(int numberOfFloors, Set<Elevator> elevators, DispatchStrategy dispatchStrategy, Ticker ticker) {
+        this(numberOfFloors, singleGroup(numberOfFloors, elevators, dispatchStrategy), ticker);
+    }
+
+    /**
+     * Creates a building with several groups of elevators, e.g. low-rise and high-rise banks. Every call goes to
+     * one group serving its floor (and its destination, if known), and is dispatched by the strategy of that group
+     * only. Groups are dispatched independently of each other.
+     * <p>
+     * When several groups serve a floor, the call goes to the one whose elevator is estimated to get there first,
+     * counting only elevators which take calls (see {@link Elevator#estimateArrivalMillis(int)}). A destination call
+     * only goes to groups serving its destination too. Ties go to the group listed first.
+     * <p>
+     * Elevators of a group with a {@link ParkingPolicy} are parked where the policy says once they have been idle
+     * for the idle timeout of the group, unless the group has calls waiting.
+     *
+     * @param numberOfFloors Number of floors must be greater than 0
+     * @param groups         elevator groups. an elevator can be in one group only.
+     * @param ticker         time base of the elevators: the clock they were created with, or their scheduler.
+     */
+    public Building(int numberOfFloors, List<ElevatorGroup> groups, Ticker ticker) {
         if (numberOfFloors <= 0) {
             throw new IllegalArgumentException("Number of floors must be greater than 0. Given value: " + numberOfFloors);
         }
-        this.elevators = Collections.unmodifiableSet(elevators);
         this.numberOfFloors = numberOfFloors;
+        this.ticker = ticker;
+        Set<Elevator> allElevators = new LinkedHashSet<Elevator>();
+        for (ElevatorGroup group : groups) {
+            if (group.getHighestFloor() > numberOfFloors) {
+                throw new IllegalArgumentException("Group " + group.getName() + " serves floors above the top floor " + numberOfFloors);
+            }
+            for (Elevator elevator : group.getElevators()) {
+                if (!allElevators.add(elevator)) {
+                    throw new IllegalArgumentException("Elevator " + elevator.getName() + " is in more than one group");
+                }
+            }
+            dispatchers.add(new GroupDispatcher(group));
+        }
+        this.elevators = Collections.unmodifiableSet(allElevators);
+        this.dispatchersByFloor = new GroupDispatcher[numberOfFloors + 1][];
+        for (int floor = 1; floor <= numberOfFloors; floor++) {
+            List<GroupDispatcher> serving = new ArrayList<GroupDispatcher>();
+            for (GroupDispatcher dispatcher : dispatchers) {
+                if (dispatcher.group.serves(floor)) {
+                    serving.add(dispatcher);
+                }
+            }
+            dispatchersByFloor[floor] = serving.toArray(new GroupDispatcher[serving.size()]);
+        }
+        for (GroupDispatcher dispatcher : dispatchers) {
+            dispatcher.register();
+        }
     }
 
+    /**
+     * Groups are ordered by their floors, lowest first, so routing does not depend on the iteration order of the set.
+     */
+    private static List<ElevatorGroup> groupByFloors(Set<Elevator> elevators) {
+        Map<List<Integer>, Set<Elevator>> byFloors = new TreeMap<List<Integer>, Set<Elevator>>(new Comparator<List<Integer>>() {
+            @Override
+            public int compare(List<Integer> first, List<Integer> second) {
+                int byMinimum = first.get(0).compareTo(second.get(0));
+                return byMinimum != 0 ? byMinimum : first.get(1).compareTo(second.get(1));
+            }
+        });
+        for (Elevator elevator : elevators) {
+            List<Integer> floors = Arrays.asList(elevator.getMinimumFloor(), elevator.getTopFloor());
+            Set<Elevator> group = byFloors.get(floors);
+            if (group == null) {
+                group = new LinkedHashSet<Elevator>();
+                byFloors.put(floors, group);
+            }
+            group.add(elevator);
+        }
+        List<ElevatorGroup> groups = new ArrayList<ElevatorGroup>();
+        for (Map.Entry<List<Integer>, Set<Elevator>> group : byFloors.entrySet()) {
+            groups.add(new ElevatorGroup("floors " + group.getKey().get(0) + "-" + group.getKey().get(1),
+                    group.getValue(), new NearestCarDispatchStrategy()));
+        }
+        return groups;
+    }
+
+    private static List<ElevatorGroup> singleGroup(int numberOfFloors, Set<Elevator> elevators, DispatchStrategy dispatchStrategy) {
+        int lowest = 1;
+        int highest = numberOfFloors;
+        Elevator first = null;
+        for (Elevator elevator : elevators) {
+            if (first == null) {
+                first = elevator;
+                lowest = Math.max(lowest, elevator.getMinimumFloor());
+                highest = Math.min(highest, elevator.getTopFloor());
+            } else if (elevator.getMinimumFloor() != first.getMinimumFloor() || elevator.getTopFloor() != first.getTopFloor()) {
+                throw new IllegalArgumentException("Elevators " + first.getName() + " and " + elevator.getName()
+                        + " serve different floors. Put them into groups with a dispatch strategy each");
+            }
+        }
+        int[] floors = new int[Math.max(0, highest - lowest + 1)];
+        for (int i = 0; i < floors.length; i++) {
+            floors[i] = lowest + i;
+        }
+        return Collections.singletonList(new ElevatorGroup("all", elevators, dispatchStrategy, floors));
+    }
+
+    /**
+     * Blocks until some elevator takes the call. Do not call this from a thread which runs a
+     * {@link com.locusenergy.homework.simulation.DiscreteEventScheduler} - elevators would never move then.
+     * Use {@link #callElevatorAsync(int, Direction)} instead.
+     */
     @Override
     public Elevator callElevator(int fromFloor, Direction direction) throws InvalidRequest {
-        checkFloorWithinLimits(fromFloor);
-        Elevator elevator = findElevator(fromFloor, direction);
-        elevator.requestFloor(fromFloor);
-        return elevator;
+        return callElevatorAsync(fromFloor, direction).join();
     }
 
-    private Elevator findElevator(int floor, Direction direction) {
-        Elevator candidate = null;
-        while (candidate == null) {
-            candidate = findPossibleElevator(floor, direction);
-            if (candidate == null) {
-                try {
-                    Thread.sleep(50);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+    @Override
+    public CompletableFuture<Elevator> callElevatorAsync(int fromFloor, Direction direction) throws InvalidRequest {
+        return callElevatorAsync(new HallCall(fromFloor, direction));
+    }
+
+    @Override
+    public CompletableFuture<Elevator> callElevatorAsync(HallCall hallCall) throws InvalidRequest {
+        return callElevatorsAsync(new HallCall[]{hallCall}).get(0);
+    }
+
+    @Override
+    public List<CompletableFuture<Elevator>> callElevatorsAsync(HallCall[] hallCalls) throws InvalidRequest {
+        List<PendingCall> calls = makeCalls(hallCalls);
+        List<CompletableFuture<Elevator>> futures = new ArrayList<CompletableFuture<Elevator>>(calls.size());
+        for (PendingCall call : calls) {
+            futures.add(call.future);
+        }
+        return futures;
+    }
+
+    /**
+     * Makes the call like {@link #callElevatorAsync(HallCall)}, but the returned future is completed only when an
+     * elevator stops at the calling floor for the caller. If the assigned elevator passes the floor by because it is
+     * full, the call goes to another elevator and the future is completed with that one.
+     *
+     * @return future completed with the Elevator which has come to pick the caller up
+     * @throws InvalidRequest when the calling or destination floor is out of limits.
+     */
+    public CompletableFuture<Elevator> pickUpAsync(HallCall hallCall) throws InvalidRequest {
+        return makeCalls(new HallCall[]{hallCall}).get(0).pickedUp;
+    }
+
+    private List<PendingCall> makeCalls(HallCall[] hallCalls) {
+        GroupDispatcher[] targets = new GroupDispatcher[hallCalls.length];
+        for (int i = 0; i < hallCalls.length; i++) {
+            HallCall hallCall = hallCalls[i];
+            checkFloorWithinLimits(hallCall.getFloor());
+            if (hallCall.hasDestination()) {
+                checkFloorWithinLimits(hallCall.getDestinationFloor());
+            }
+            targets[i] = dispatcherFor(hallCall);
+        }
+        long now = ticker.currentTimeMillis();
+        List<PendingCall> calls = new ArrayList<PendingCall>(hallCalls.length);
+        Map<GroupDispatcher, List<PendingCall>> callsByDispatcher = new LinkedHashMap<GroupDispatcher, List<PendingCall>>();
+        for (int i = 0; i < hallCalls.length; i++) {
+            PendingCall call = new PendingCall(hallCalls[i], now);
+            calls.add(call);
+            List<PendingCall> group = callsByDispatcher.get(targets[i]);
+            if (group == null) {
+                group = new ArrayList<PendingCall>();
+                callsByDispatcher.put(targets[i], group);
+            }
+            group.add(call);
+        }
+        for (Map.Entry<GroupDispatcher, List<PendingCall>> entry : callsByDispatcher.entrySet()) {
+            for (PendingCall call : entry.getValue()) {
+                ElevatorTrace.recordHallCall(call.hallCall, ticker);
+                metrics.callMade();
+            }
+            List<PendingCall> joined = entry.getKey().enqueue(entry.getValue());
+            for (int i = 0; i < joined.size(); i++) {
+                if (joined.get(i) != null) {
+                    mirror(joined.get(i), entry.getValue().get(i));
                 }
             }
         }
-        return candidate;
+        for (GroupDispatcher dispatcher : callsByDispatcher.keySet()) {
+            dispatcher.dispatchPendingCalls();
+        }
+        return calls;
     }
 
-    private Elevator findPossibleElevator(int floor, Direction direction) {
-        Elevator candidate = null;
-        int minDistanceInFloors = Integer.MAX_VALUE;
-        for (Elevator elevator : elevators) {
-            if (isNotBusy(elevator) || isApproaching(elevator, direction, floor)) {
-                int distance = elevator.currentFloor() - floor;
-                int absDistance = Math.abs(distance);
-                if (absDistance < minDistanceInFloors) {
-                    minDistanceInFloors = absDistance;
-                    candidate = elevator;
-                }
-                if (minDistanceInFloors == 0) {
-                    break;
+    private static void mirror(PendingCall joined, final PendingCall call) {
+        joined.future.whenComplete(new BiConsumer<Elevator, Throwable>() {
+            @Override
+            public void accept(Elevator elevator, Throwable failure) {
+                if (failure != null) {
+                    call.future.completeExceptionally(failure);
+                } else {
+                    call.future.complete(elevator);
                 }
             }
+        });
+    }
+
+    /**
+     * Uses the floor-to-group table, so only the groups serving the calling floor are looked at.
+     */
+    private GroupDispatcher dispatcherFor(HallCall hallCall) {
+        GroupDispatcher[] serving = dispatchersByFloor[hallCall.getFloor()];
+        if (serving.length == 1 && (!hallCall.hasDestination() || serving[0].group.serves(hallCall.getDestinationFloor()))) {
+            return serving[0];
+        }
+        GroupDispatcher best = null;
+        long bestArrival = Long.MAX_VALUE;
+        for (GroupDispatcher dispatcher : serving) {
+            if (hallCall.hasDestination() && !dispatcher.group.serves(hallCall.getDestinationFloor())) {
+                continue;
+            }
+            long arrival = earliestArrival(dispatcher.group, hallCall.getFloor());
+            // strictly earlier only: ties go to the group listed first
+            if (best == null || arrival < bestArrival) {
+                best = dispatcher;
+                bestArrival = arrival;
+            }
+        }
+        if (best == null) {
+            if (hallCall.hasDestination()) {
+                throw new InvalidRequest("No elevator group serves both floor " + hallCall.getFloor()
+                        + " and floor " + hallCall.getDestinationFloor());
+            }
+            throw new InvalidRequest("No elevator group serves floor " + hallCall.getFloor());
+        }
+        return best;
+    }
+
+    /**
+     * @return estimated arrival of the first elevator of the group which takes calls, Long.MAX_VALUE if none does.
+     */
+    private static long earliestArrival(ElevatorGroup group, int floor) {
+        long earliest = Long.MAX_VALUE;
+        for (Elevator elevator : group.getElevators()) {
+            if (elevator.snapshot().acceptsCalls()) {
+                earliest = Math.min(earliest, elevator.estimateArrivalMillis(floor));
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Blocks until some elevator takes every call. The same restrictions apply as for
+     * {@link #callElevator(int, Direction)}.
+     */
+    @Override
+    public Elevator[] callElevators(HallCall[] hallCalls) throws InvalidRequest {
+        List<CompletableFuture<Elevator>> futures = callElevatorsAsync(hallCalls);
+        Elevator[] assigned = new Elevator[futures.size()];
+        for (int i = 0; i < assigned.length; i++) {
+            assigned[i] = futures.get(i).join();
+        }
+        return assigned;
+    }
+
+    public int getNumberOfFloors() {
+        return numberOfFloors;
+    }
+
+    /**
+     * @return unmodifiable set of the elevators.
+     */
+    public Set<Elevator> getElevators() {
+        return elevators;
+    }
+
+    /**
+     * @return the elevator groups of the building, in dispatch order.
+     */
+    public List<ElevatorGroup> getGroups() {
+        List<ElevatorGroup> groups = new ArrayList<ElevatorGroup>(dispatchers.size());
+        for (GroupDispatcher dispatcher : dispatchers) {
+            groups.add(dispatcher.group);
+        }
+        return groups;
+    }
+
+    /**
+     * Tells whether the call button of the floor is lit: a call without destination has been made there and no
+     * elevator has picked it up yet. Further calls from the floor in the same direction join that call and get the
+     * same elevator.
+     */
+    public boolean isHallCallRegistered(int floor, Direction direction) {
+        checkFloorWithinLimits(floor);
+        for (GroupDispatcher dispatcher : dispatchersByFloor[floor]) {
+            if (dispatcher.isHallCallRegistered(floor, direction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return calls which are waiting for an elevator now, oldest first within each group.
+     */
+    public List<HallCall> getPendingCalls() {
+        List<HallCall> calls = new ArrayList<HallCall>();
+        for (GroupDispatcher dispatcher : dispatchers) {
+            dispatcher.addPendingCallsTo(calls);
         }
-        return candidate;
+        return calls;
     }
 
-    private boolean isApproaching(Elevator elevator, Direction direction, int floor) {
-        return elevator.isBusy() && elevator.getDirection() == direction && notReachedOurFloorYet(elevator, floor);
+    /**
+     * Starts all elevators of the building. Elevators from {@link com.locusenergy.homework.internal.ElevatorFactory}
+     * are already started.
+     */
+    public void start() {
+        for (Elevator elevator : elevators) {
+            elevator.start();
+        }
     }
 
-    private boolean isNotBusy(Elevator elevator) {
-        return !elevator.isBusy();
+    /**
+     * Shuts down all elevators and rejects new calls. Calls still waiting for an elevator complete exceptionally
+     * with IllegalStateException, and so do the {@link #pickUpAsync(HallCall)} futures of all calls no elevator has
+     * picked up yet.
+     */
+    public void shutdown() {
+        List<PendingCall> cancelledCalls = new ArrayList<PendingCall>();
+        for (GroupDispatcher dispatcher : dispatchers) {
+            dispatcher.shutdown(cancelledCalls);
+        }
+        for (Elevator elevator : elevators) {
+            elevator.shutdown();
+        }
+        for (PendingCall call : cancelledCalls) {
+            call.cancel();
+        }
     }
 
-    private boolean notReachedOurFloorYet(Elevator elevator, int floor) {
-        if (elevator.getDirection().equals(UP)) {
-            return elevator.currentFloor() < floor;
+    /**
+     * Blocks until all elevators stop after {@link #shutdown()}.
+     *
+     * @return false if the timeout expired first.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Elevator elevator : elevators) {
+            if (!elevator.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
         }
-        if (elevator.getDirection().equals(DOWN)) {
-            return elevator.currentFloor() > floor;
+        return true;
+    }
+
+    /**
+     * @return measurements of the building and all its elevators, taken now.
+     */
+    public MetricsSnapshot getMetrics() {
+        Map<String, ElevatorMetrics> elevatorMetrics = new TreeMap<String, ElevatorMetrics>();
+        for (Elevator elevator : elevators) {
+            elevatorMetrics.put(elevator.getName(), elevator.getMetrics());
         }
-        throw new IllegalStateException("unknown direction: " + elevator.getDirection());
+        return MetricsSnapshot.of(metrics, elevatorMetrics, ticker.currentTimeMillis());
     }
 
     /**
@@ -97,4 +441,348 @@ public class Building implements ElevatorController {
         }
     }
 
+    /**
+     * Calls of one elevator group waiting for an elevator, together with the dispatch strategy of the group.
+     * Every group has its own lock, so groups never wait for each other.
+     */
+    private class GroupDispatcher {
+        private final ElevatorGroup group;
+        private final DispatchStrategy dispatchStrategy;
+        // null if idle elevators are not parked. guarded by pendingCalls, the same as the strategy
+        private final ParkingPolicy parkingPolicy;
+        // calls which could not be assigned to any elevator yet. guarded by itself, the same as the strategy
+        private final Queue<PendingCall> pendingCalls = new ArrayDeque<PendingCall>();
+        private boolean dispatchingPendingCalls;
+        private boolean shutdown;
+        // calls without destination until an elevator picks them up. guarded by pendingCalls
+        private final HallCallRegistry hallCalls = new HallCallRegistry(numberOfFloors);
+
+        private GroupDispatcher(ElevatorGroup group) {
+            this.group = group;
+            this.dispatchStrategy = group.getDispatchStrategy();
+            this.parkingPolicy = group.getParkingPolicy();
+        }
+
+        private void register() {
+            ElevatorStateListener stateListener = new ElevatorStateListener() {
+                @Override
+                public void stateChanged(Elevator elevator) {
+                    synchronized (pendingCalls) {
+                        dispatchStrategy.stateChanged(elevator);
+                    }
+                    dispatchPendingCalls();
+                }
+            };
+            synchronized (pendingCalls) {
+                for (Elevator elevator : group.getElevators()) {
+                    elevator.addStateListener(stateListener);
+                    dispatchStrategy.stateChanged(elevator);
+                }
+            }
+            if (parkingPolicy != null) {
+                IdleListener idleListener = new IdleListener() {
+                    @Override
+                    public void idleTimedOut(Elevator elevator) {
+                        park(elevator);
+                    }
+                };
+                for (Elevator elevator : group.getElevators()) {
+                    elevator.setIdleListener(idleListener, group.getIdleTimeoutMillis());
+                }
+            }
+        }
+
+        private void park(Elevator elevator) {
+            int floor;
+            synchronized (pendingCalls) {
+                // a waiting call will take the elevator anyway
+                if (shutdown || !pendingCalls.isEmpty()) {
+                    return;
+                }
+                floor = parkingPolicy.selectParkingFloor(elevator, group.getElevators(), ticker.currentTimeMillis());
+            }
+            if (floor == elevator.currentFloor()) {
+                return;
+            }
+            if (!group.serves(floor)) {
+                LOG.warn("Parking policy of group " + group.getName() + " chose floor " + floor + " it does not serve");
+                return;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("parking " + elevator.getName() + " at floor " + floor);
+            }
+            elevator.park(floor);
+        }
+
+        /**
+         * Queues the calls in the given order under one lock, so a dispatch running on another thread sees either
+         * all of them or none.
+         *
+         * @return for every call, the call it has been merged into, or null if it is waiting for an elevator.
+         */
+        private List<PendingCall> enqueue(List<PendingCall> calls) {
+            List<PendingCall> joined = new ArrayList<PendingCall>(calls.size());
+            synchronized (pendingCalls) {
+                if (shutdown) {
+                    throw new IllegalStateException("Building is shut down");
+                }
+                for (PendingCall call : calls) {
+                    joined.add(enqueue(call));
+                }
+            }
+            return joined;
+        }
+
+        // guarded by pendingCalls
+        private PendingCall enqueue(PendingCall call) {
+            if (parkingPolicy != null) {
+                parkingPolicy.callMade(call.hallCall, call.createdMillis);
+            }
+            if (!call.hallCall.hasDestination()) {
+                // the button is lit already: one elevator answers everybody waiting behind it
+                PendingCall registered = hallCalls.get(call.hallCall.getFloor(), call.hallCall.getDirection());
+                if (registered != null) {
+                    registered.merged.add(call);
+                    return registered;
+                }
+                hallCalls.register(call);
+            }
+            // FIFO: calls which are already waiting get their chance first
+            pendingCalls.add(call);
+            return null;
+        }
+
+        private boolean isHallCallRegistered(int floor, Direction direction) {
+            synchronized (pendingCalls) {
+                return hallCalls.get(floor, direction) != null;
+            }
+        }
+
+        private void addPendingCallsTo(List<HallCall> calls) {
+            synchronized (pendingCalls) {
+                for (PendingCall call : pendingCalls) {
+                    calls.add(call.hallCall);
+                }
+            }
+        }
+
+        private void shutdown(List<PendingCall> cancelledCalls) {
+            synchronized (pendingCalls) {
+                shutdown = true;
+                cancelledCalls.addAll(pendingCalls);
+                pendingCalls.clear();
+            }
+        }
+
+        /**
+         * Called for every new call and whenever some elevator of the group changes its state, which is the only
+         * time a waiting call can become assignable.
+         */
+        private void dispatchPendingCalls() {
+            List<PendingCall> assignedCalls = new ArrayList<PendingCall>();
+            synchronized (pendingCalls) {
+                // requestPickup() in tryToAssign() notifies us again from the same thread. the loop below will see
+                // the new state anyway.
+                if (dispatchingPendingCalls || pendingCalls.isEmpty()) {
+                    return;
+                }
+                dispatchingPendingCalls = true;
+                try {
+                    Iterator<PendingCall> iterator = pendingCalls.iterator();
+                    while (iterator.hasNext()) {
+                        PendingCall call = iterator.next();
+                        if (tryToAssign(call)) {
+                            iterator.remove();
+                            assignedCalls.add(call);
+                        }
+                    }
+                } finally {
+                    dispatchingPendingCalls = false;
+                }
+            }
+            // futures are completed outside of the lock because their callbacks run right here
+            for (PendingCall call : assignedCalls) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("call " + call.hallCall + " waited " + (ticker.currentTimeMillis() - call.createdMillis)
+                            + " ms for " + call.assignedElevator.getName());
+                }
+                metrics.callAssigned(ticker.currentTimeMillis() - call.createdMillis);
+                measureRide(call);
+                call.complete();
+            }
+        }
+
+        /**
+         * Records the wait when the elevator gets to the caller and, for destination calls, the travel when it gets
+         * to the destination. If the elevator passes the caller by because it is full, the call waits for another
+         * elevator.
+         */
+        private void measureRide(final PendingCall call) {
+            final Elevator elevator = call.assignedElevator;
+            call.pickup.whenComplete(new BiConsumer<Void, Throwable>() {
+                @Override
+                public void accept(Void ignored, Throwable failure) {
+                    if (failure instanceof PickupBypassedException) {
+                        redispatch(call, elevator);
+                        return;
+                    }
+                    if (failure != null) {
+                        // the elevator has been shut down
+                        call.cancel();
+                        return;
+                    }
+                    final long pickedUpMillis = ticker.currentTimeMillis();
+                    List<PendingCall> merged;
+                    synchronized (pendingCalls) {
+                        hallCalls.remove(call);
+                        merged = new ArrayList<PendingCall>(call.merged);
+                    }
+                    metrics.passengerPickedUp(pickedUpMillis - call.createdMillis);
+                    for (PendingCall mergedCall : merged) {
+                        metrics.passengerPickedUp(pickedUpMillis - mergedCall.createdMillis);
+                    }
+                    call.pickedUp.complete(elevator);
+                    for (PendingCall mergedCall : merged) {
+                        mergedCall.pickedUp.complete(elevator);
+                    }
+                    if (call.hallCall.hasDestination()) {
+                        elevator.arrivalAt(call.hallCall.getDestinationFloor()).thenRun(new Runnable() {
+                            @Override
+                            public void run() {
+                                metrics.passengerArrived(ticker.currentTimeMillis() - pickedUpMillis);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        private void redispatch(PendingCall call, Elevator fullElevator) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(fullElevator.getName() + " was full and passed call " + call.hallCall + " by");
+            }
+            metrics.pickupBypassed();
+            boolean cancelled = false;
+            synchronized (pendingCalls) {
+                if (shutdown) {
+                    cancelled = true;
+                } else {
+                    // the assignment futures have been completed with the first elevator already. the callers
+                    // waiting for a pickup get the elevator of the retry
+                    PendingCall retry = new PendingCall(call.hallCall, call.createdMillis, call.pickedUp);
+                    retry.merged.addAll(call.merged);
+                    hallCalls.replace(call, retry);
+                    pendingCalls.add(retry);
+                }
+            }
+            if (cancelled) {
+                call.cancel();
+                return;
+            }
+            dispatchPendingCalls();
+        }
+
+        private boolean tryToAssign(PendingCall call) {
+            long dispatchStart = System.nanoTime();
+            Elevator elevator = dispatchStrategy.selectElevator(call.hallCall);
+            metrics.dispatched(System.nanoTime() - dispatchStart);
+            if (elevator == null) {
+                return false;
+            }
+            ElevatorTrace.recordAssignment(call.hallCall, elevator, ticker);
+            call.pickup = elevator.requestPickup(call.hallCall.getFloor());
+            dispatchStrategy.callAssigned(call.hallCall, elevator);
+            call.assignedElevator = elevator;
+            return true;
+        }
+    }
+
+    /**
+     * Calls without destination of one group which no elevator has picked up yet, at most one per floor and
+     * direction: what the up and down buttons of the floors show. Not thread-safe.
+     */
+    private static class HallCallRegistry {
+        private final PendingCall[] upCalls;
+        private final PendingCall[] downCalls;
+
+        private HallCallRegistry(int numberOfFloors) {
+            upCalls = new PendingCall[numberOfFloors + 1];
+            downCalls = new PendingCall[numberOfFloors + 1];
+        }
+
+        private PendingCall get(int floor, Direction direction) {
+            if (direction == Direction.UP) {
+                return upCalls[floor];
+            }
+            return downCalls[floor];
+        }
+
+        private void register(PendingCall call) {
+            int floor = call.hallCall.getFloor();
+            if (call.hallCall.getDirection() == Direction.UP) {
+                upCalls[floor] = call;
+            } else {
+                downCalls[floor] = call;
+            }
+        }
+
+        /**
+         * Does nothing if the call is not the registered one.
+         */
+        private void remove(PendingCall call) {
+            int floor = call.hallCall.getFloor();
+            if (get(floor, call.hallCall.getDirection()) != call) {
+                return;
+            }
+            if (call.hallCall.getDirection() == Direction.UP) {
+                upCalls[floor] = null;
+            } else {
+                downCalls[floor] = null;
+            }
+        }
+
+        private void replace(PendingCall call, PendingCall newCall) {
+            if (get(call.hallCall.getFloor(), call.hallCall.getDirection()) == call) {
+                register(newCall);
+            }
+        }
+    }
+
+    private static class PendingCall {
+        private final HallCall hallCall;
+        private final long createdMillis;
+        private final CompletableFuture<Elevator> future = new CompletableFuture<Elevator>();
+        // completed when an elevator stops for the caller, shared by the retries after a bypass
+        private final CompletableFuture<Elevator> pickedUp;
+        private Elevator assignedElevator;
+        private CompletableFuture<Void> pickup;
+        // identical calls made before the elevator got here. guarded by the lock of the group
+        private final List<PendingCall> merged = new ArrayList<PendingCall>();
+
+        private PendingCall(HallCall hallCall, long createdMillis) {
+            this(hallCall, createdMillis, new CompletableFuture<Elevator>());
+        }
+
+        private PendingCall(HallCall hallCall, long createdMillis, CompletableFuture<Elevator> pickedUp) {
+            this.hallCall = hallCall;
+            this.createdMillis = createdMillis;
+            this.pickedUp = pickedUp;
+        }
+
+        private void complete() {
+            future.complete(assignedElevator);
+        }
+
+        /**
+         * Must not be called while new calls can still be merged into this one.
+         */
+        private void cancel() {
+            IllegalStateException shutdown = new IllegalStateException("Building is shut down");
+            future.completeExceptionally(shutdown);
+            pickedUp.completeExceptionally(shutdown);
+            for (PendingCall mergedCall : merged) {
+                mergedCall.pickedUp.completeExceptionally(shutdown);
+            }
+        }
+    }
 }
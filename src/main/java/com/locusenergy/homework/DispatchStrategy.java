@@ -0,0 +1,25 @@
+package com.locusenergy.homework;
+
+/**
+ * Decides which elevator takes a hall call. {@link Building} calls all methods of a strategy one at a time,
+ * so implementations do not need to be thread-safe. A strategy instance must not be shared between buildings.
+ */
+public interface DispatchStrategy {
+
+    /**
+     * Called once for every elevator when the building is created, and then every time an elevator changes state.
+     */
+    void stateChanged(Elevator elevator);
+
+    /**
+     * @return elevator which should take the call, or null if no elevator can take it now. The call is retried
+     * after the next state change of any elevator.
+     */
+    Elevator selectElevator(HallCall call);
+
+    /**
+     * Called after the building has requested the call's floor from the selected elevator.
+     */
+    default void callAssigned(HallCall call, Elevator elevator) {
+    }
+}
@@ -1,5 +1,10 @@
 package com.locusenergy.homework;
 
+import com.locusenergy.homework.metrics.ElevatorMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 public interface Elevator {
     /**
      * Requests the Elevator to move to a certain floor. This method imitates press of a button inside the
@@ -8,9 +13,52 @@ public interface Elevator {
      * Bonus: this method should throw InvalidStateException if the Elevator is NOT busy.
      */
     void requestFloor(int floor);
+
+    /**
+     * Same as calling {@link #requestFloor(int)} for every floor, but the Elevator takes all of them at once.
+     * If any floor is invalid, none is requested.
+     */
+    void requestFloors(int... floors);
+
+    /**
+     * Requests a stop to pick up passengers waiting at the floor (a hall call), as opposed to {@link #requestFloor(int)}
+     * pressed inside. A fully loaded Elevator passes such a stop by, unless it has to stop there anyway.
+     *
+     * @return future completed when the Elevator stops at the floor, or exceptionally with
+     * {@link PickupBypassedException} if it passed the floor by.
+     */
+    CompletableFuture<Void> requestPickup(int floor);
+
+    /**
+     * A passenger gets in at the current floor and requests the destination floor.
+     *
+     * @return false if the Elevator is full and the passenger stays out.
+     */
+    boolean board(int destinationFloor);
+
+    /**
+     * @param passengers maximum number of passengers, or {@link ElevatorState#UNLIMITED} (the default).
+     */
+    void setCapacity(int passengers);
     
     /**
-     * Moves the Elevator to a desired floor.
+     * Sends an idle Elevator to wait at the floor. Unlike {@link #requestFloor(int)}, the trip is given up as soon as
+     * the Elevator gets a request. Does nothing if the Elevator is busy.
+     */
+    void park(int floor);
+
+    /**
+     * Sets the listener to call every time the Elevator has been idle for the given time, replacing the previous one.
+     *
+     * @param listener      null to stop notifications.
+     * @param timeoutMillis idle time in milliseconds of the Elevator's clock.
+     */
+    void setIdleListener(IdleListener listener, long timeoutMillis);
+
+    /**
+     * Express run, e.g. for fire service, a VIP or to move a car where it is needed: the Elevator goes straight to
+     * the floor without stopping on the way and takes no calls until it gets there. Pending stops, and floors
+     * requested during the run, are put aside and made afterwards. A new express run replaces the current one.
      */
     void moveElevator(int toFloor);
     
@@ -24,9 +72,80 @@ public interface Elevator {
      */
     int currentFloor();
 
+    /**
+     * @return direction the Elevator is moving to, or null if it is not busy.
+     */
     Direction getDirection();
 
+    /**
+     * Returns floor, direction and busy state read at the same moment, without locking. Use this instead of calling
+     * {@link #currentFloor()}, {@link #getDirection()} and {@link #isBusy()} one after another, which can give
+     * values from different moments.
+     */
+    ElevatorState snapshot();
+
+    /**
+     * Estimates how long it would take the Elevator to reach the floor if the floor was requested now, taking into
+     * account the stops it has to make first. Can be shown to passengers waiting for the Elevator.
+     *
+     * @return estimated time in milliseconds
+     */
+    long estimateArrivalMillis(int floor);
+
+    /**
+     * Blocks until the Elevator has nothing left to do.
+     *
+     * @return false if the timeout expired while the Elevator was still busy.
+     */
+    boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Returns a future completed the next time the Elevator stops at the floor, or right away if it is standing at
+     * the floor with nothing to do. The floor is not requested: if nobody requests it, the future may never complete.
+     */
+    CompletableFuture<Void> arrivalAt(int floor);
+
+    /**
+     * Starts moving the Elevator. Elevators from {@link com.locusenergy.homework.internal.ElevatorFactory} are
+     * already started, so calling this again does nothing.
+     */
+    void start();
+
+    /**
+     * Stops the Elevator where it is: pending stops are dropped and new requests are rejected with
+     * IllegalStateException. Futures from {@link #arrivalAt(int)} and {@link #requestPickup(int)} which have not
+     * completed yet complete exceptionally with IllegalStateException. Does not wait for the Elevator to stop, use
+     * {@link #awaitTermination(long, TimeUnit)}.
+     */
+    void shutdown();
+
+    /**
+     * Blocks until the Elevator stops moving after {@link #shutdown()}.
+     *
+     * @return false if the timeout expired first.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * @return live measurements of the Elevator.
+     */
+    ElevatorMetrics getMetrics();
+
     String getName();
 
+    /**
+     * @return the lowest floor the Elevator can go to.
+     */
+    int getMinimumFloor();
+
+    /**
+     * @return the highest floor the Elevator can go to.
+     */
+    int getTopFloor();
+
     void setFloorListener(FloorListener listener);
+
+    void addStateListener(ElevatorStateListener listener);
+
+    void removeStateListener(ElevatorStateListener listener);
 }
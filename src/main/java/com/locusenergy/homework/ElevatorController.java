@@ -1,5 +1,8 @@
 package com.locusenergy.homework;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface ElevatorController {
     /**
      * This is a blocking call that returns an Elevator instance.
@@ -11,4 +14,44 @@ public interface ElevatorController {
      * @throws InvalidRequest when fromFloor < minimum floor, or > maximum floor, or direction is invalid.
      */
     Elevator callElevator(int fromFloor, Direction direction) throws InvalidRequest;
+
+    /**
+     * Non-blocking version of {@link #callElevator(int, Direction)}. If no elevator can take the call right now,
+     * the call is queued and the returned future is completed as soon as some elevator becomes available.
+     * No thread is blocked while waiting.
+     *
+     * @param fromFloor Floor number where the call is made from.
+     * @param direction UP or DOWN
+     *
+     * @return future completed with the Elevator assigned to this call
+     * @throws InvalidRequest when fromFloor < minimum floor, or > maximum floor, or direction is invalid.
+     */
+    CompletableFuture<Elevator> callElevatorAsync(int fromFloor, Direction direction) throws InvalidRequest;
+
+    /**
+     * Same as {@link #callElevatorAsync(int, Direction)}, but the call can also carry the destination floor
+     * (destination dispatch panels). Only the calling floor is requested from the elevator, the passenger still
+     * requests the destination from inside.
+     *
+     * @return future completed with the Elevator assigned to this call
+     * @throws InvalidRequest when the calling or destination floor is out of limits.
+     */
+    CompletableFuture<Elevator> callElevatorAsync(HallCall call) throws InvalidRequest;
+
+    /**
+     * Makes all the calls at once, e.g. for a crowd at the lobby. The calls of each elevator group are queued
+     * together and then assigned one by one in the given order, so every assignment takes the earlier ones of the
+     * group into account, but not the later ones. If any call is invalid, none is made.
+     *
+     * @return futures completed with the Elevators assigned to the calls, in the order of the calls
+     * @throws InvalidRequest when the calling or destination floor of any call is out of limits.
+     */
+    List<CompletableFuture<Elevator>> callElevatorsAsync(HallCall[] calls) throws InvalidRequest;
+
+    /**
+     * Blocking version of {@link #callElevatorsAsync(HallCall[])}.
+     *
+     * @return Elevators assigned to the calls, in the order of the calls
+     */
+    Elevator[] callElevators(HallCall[] calls) throws InvalidRequest;
 }
@@ -0,0 +1,145 @@
+package com.locusenergy.homework;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Elevators which serve the same floors and are dispatched together, e.g. a low-rise bank, a high-rise bank,
+ * shuttles between the lobby and a sky lobby, or a parking elevator. Each group has its own dispatch strategy,
+ * so the strategy only ever sees elevators able to take the calls it gets.
+ */
+public final class ElevatorGroup {
+
+    private final String name;
+    private final Set<Elevator> elevators;
+    private final DispatchStrategy dispatchStrategy;
+    private final ParkingPolicy parkingPolicy;
+    private final long idleTimeoutMillis;
+    private final BitSet servedFloors = new BitSet();
+
+    /**
+     * A group which serves every floor all its elevators can go to.
+     *
+     * @param elevators        must not be empty.
+     * @param dispatchStrategy must not be shared with other groups.
+     */
+    public ElevatorGroup(String name, Set<Elevator> elevators, DispatchStrategy dispatchStrategy) {
+        this(name, elevators, dispatchStrategy, commonFloors(name, elevators));
+    }
+
+    /**
+     * A group which takes calls at the given floors only, e.g. the lobby and the sky lobby for express shuttles.
+     *
+     * @param elevators        every elevator must be able to go to every served floor.
+     * @param dispatchStrategy must not be shared with other groups.
+     */
+    public ElevatorGroup(String name, Set<Elevator> elevators, DispatchStrategy dispatchStrategy, int... servedFloors) {
+        this(name, elevators, dispatchStrategy, null, 0, servedFloors);
+    }
+
+    /**
+     * A group whose idle elevators are parked, e.g. at the lobby, once they have been idle for the timeout.
+     *
+     * @param parkingPolicy must not be shared with other groups.
+     */
+    public ElevatorGroup(String name, Set<Elevator> elevators, DispatchStrategy dispatchStrategy,
+                         ParkingPolicy parkingPolicy, long idleTimeoutMillis) {
+        this(name, elevators, dispatchStrategy, parkingPolicy, idleTimeoutMillis, commonFloors(name, elevators));
+    }
+
+    /**
+     * @param parkingPolicy null to leave idle elevators where they stopped.
+     */
+    public ElevatorGroup(String name, Set<Elevator> elevators, DispatchStrategy dispatchStrategy,
+                         ParkingPolicy parkingPolicy, long idleTimeoutMillis, int... servedFloors) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Idle timeout of group " + name + " must not be negative");
+        }
+        this.name = name;
+        this.elevators = Collections.unmodifiableSet(new LinkedHashSet<Elevator>(elevators));
+        this.dispatchStrategy = dispatchStrategy;
+        this.parkingPolicy = parkingPolicy;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        for (int floor : servedFloors) {
+            for (Elevator elevator : elevators) {
+                if (floor < elevator.getMinimumFloor() || floor > elevator.getTopFloor()) {
+                    throw new IllegalArgumentException("Elevator " + elevator.getName() + " of group " + name
+                            + " cannot go to floor " + floor);
+                }
+            }
+            if (floor < 1) {
+                throw new IllegalArgumentException("Group " + name + " serves floor " + floor + " below the ground floor (1)");
+            }
+            this.servedFloors.set(floor);
+        }
+    }
+
+    private static int[] commonFloors(String name, Set<Elevator> elevators) {
+        if (elevators.isEmpty()) {
+            throw new IllegalArgumentException("Group " + name + " has no elevators");
+        }
+        int lowest = Integer.MIN_VALUE;
+        int highest = Integer.MAX_VALUE;
+        for (Elevator elevator : elevators) {
+            lowest = Math.max(lowest, elevator.getMinimumFloor());
+            highest = Math.min(highest, elevator.getTopFloor());
+        }
+        lowest = Math.max(lowest, 1);
+        if (highest < lowest) {
+            throw new IllegalArgumentException("Elevators of group " + name + " have no floor in common");
+        }
+        int[] floors = new int[highest - lowest + 1];
+        for (int i = 0; i < floors.length; i++) {
+            floors[i] = lowest + i;
+        }
+        return floors;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<Elevator> getElevators() {
+        return elevators;
+    }
+
+    public DispatchStrategy getDispatchStrategy() {
+        return dispatchStrategy;
+    }
+
+    /**
+     * @return null if idle elevators are not parked.
+     */
+    public ParkingPolicy getParkingPolicy() {
+        return parkingPolicy;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public boolean serves(int floor) {
+        return floor >= 0 && servedFloors.get(floor);
+    }
+
+    /**
+     * @return the highest served floor, 0 if none.
+     */
+    public int getHighestFloor() {
+        return Math.max(servedFloors.length() - 1, 0);
+    }
+
+    /**
+     * @return the lowest served floor, -1 if none.
+     */
+    public int getLowestFloor() {
+        return servedFloors.nextSetBit(0);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + servedFloors;
+    }
+}
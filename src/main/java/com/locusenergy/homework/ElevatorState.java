@@ -0,0 +1,171 @@
+package com.locusenergy.homework;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, consistent view of an elevator at one moment. Elevators publish a new instance atomically every time
+ * something changes, so one read gives floor, direction and stops which belong together.
+ */
+public final class ElevatorState {
+
+    /**
+     * Capacity of an elevator which does not count its passengers.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final int currentFloor;
+    private final Direction direction;
+    private final int[] pendingStops;
+    private final int load;
+    private final int capacity;
+    private final boolean express;
+
+    /**
+     * @param pendingStops floors the elevator is going to stop at, sorted ascending. The array is not copied.
+     */
+    public ElevatorState(int currentFloor, Direction direction, int[] pendingStops) {
+        this(currentFloor, direction, pendingStops, 0, UNLIMITED);
+    }
+
+    /**
+     * @param pendingStops floors the elevator is going to stop at, sorted ascending. The array is not copied.
+     * @param load         passengers in the elevator
+     * @param capacity     maximum number of passengers, or {@link #UNLIMITED}
+     */
+    public ElevatorState(int currentFloor, Direction direction, int[] pendingStops, int load, int capacity) {
+        this(currentFloor, direction, pendingStops, load, capacity, false);
+    }
+
+    /**
+     * @param pendingStops floors the elevator is going to stop at, sorted ascending. The array is not copied.
+     *                     On an express run, the target floor only.
+     * @param load         passengers in the elevator
+     * @param capacity     maximum number of passengers, or {@link #UNLIMITED}
+     * @param express      true if the elevator is on an express run, see {@link Elevator#moveElevator(int)}
+     */
+    public ElevatorState(int currentFloor, Direction direction, int[] pendingStops, int load, int capacity,
+                         boolean express) {
+        this.currentFloor = currentFloor;
+        this.direction = direction;
+        this.pendingStops = pendingStops;
+        this.load = load;
+        this.capacity = capacity;
+        this.express = express;
+    }
+
+    public int getCurrentFloor() {
+        return currentFloor;
+    }
+
+    /**
+     * @return direction of the elevator or null when it is not busy.
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public boolean isBusy() {
+        return direction != null;
+    }
+
+    public int getPendingStopsCount() {
+        return pendingStops.length;
+    }
+
+    /**
+     * @param index from 0 to {@link #getPendingStopsCount()} - 1
+     * @return pending stops in ascending order of floors
+     */
+    public int getPendingStop(int index) {
+        return pendingStops[index];
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Load weighing: an elevator loaded to 80% of its capacity or more is considered full, as there is rarely room
+     * for a whole waiting group then. A full elevator passes hall calls by.
+     */
+    public boolean isFullyLoaded() {
+        return capacity != UNLIMITED && load * 5L >= capacity * 4L;
+    }
+
+    /**
+     * @return true if the elevator is on an express run: it goes straight to the target floor and takes no calls.
+     */
+    public boolean isExpress() {
+        return express;
+    }
+
+    /**
+     * @return false if the elevator is full or on an express run, so no call should be assigned to it.
+     */
+    public boolean acceptsCalls() {
+        return !express && !isFullyLoaded();
+    }
+
+    public boolean hasPendingStopAt(int floor) {
+        return Arrays.binarySearch(pendingStops, floor) >= 0;
+    }
+
+    /**
+     * @return true if the elevator accepts calls, and is idle or is going in the given direction and has not passed
+     * the floor yet.
+     */
+    public boolean canPickUp(int floor, Direction direction) {
+        if (!acceptsCalls()) {
+            return false;
+        }
+        if (this.direction == null) {
+            return true;
+        }
+        if (this.direction != direction) {
+            return false;
+        }
+        return direction == Direction.UP ? currentFloor < floor : currentFloor > floor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ElevatorState that = (ElevatorState) o;
+        return currentFloor == that.currentFloor
+                && direction == that.direction
+                && load == that.load
+                && capacity == that.capacity
+                && express == that.express
+                && Arrays.equals(pendingStops, that.pendingStops);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = currentFloor;
+        result = 31 * result + (direction != null ? direction.hashCode() : 0);
+        result = 31 * result + Arrays.hashCode(pendingStops);
+        result = 31 * result + load;
+        result = 31 * result + capacity;
+        result = 31 * result + (express ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{currentFloor=" + currentFloor +
+                ", direction=" + direction +
+                ", pendingStops=" + Arrays.toString(pendingStops) +
+                (capacity != UNLIMITED ? ", load=" + load + "/" + capacity : "") +
+                (express ? ", express" : "") +
+                "}";
+    }
+}
@@ -0,0 +1,11 @@
+package com.locusenergy.homework;
+
+/**
+ * Receives notifications when an elevator's floor, direction or busy state changes.
+ * <p>
+ * Notifications are sent after the elevator has released its internal lock, so it is safe to call the elevator
+ * (or any other elevator) from {@link #stateChanged(Elevator)}.
+ */
+public interface ElevatorStateListener {
+    void stateChanged(Elevator elevator);
+}
@@ -2,4 +2,16 @@ package com.locusenergy.homework;
 
 public interface FloorListener {
     void floorVisited(int floor);
+
+    /**
+     * Receives several floor visits at once. Called by batching listeners like {@link AsyncFloorListener}.
+     *
+     * @param floors visited floors, in order. The array is reused by the caller, do not keep a reference to it.
+     * @param count  number of valid elements in floors
+     */
+    default void floorsVisited(int[] floors, int count) {
+        for (int i = 0; i < count; i++) {
+            floorVisited(floors[i]);
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package com.locusenergy.homework;
+
+/**
+ * A call made from a floor: either a classic UP/DOWN button press or, with destination dispatch panels,
+ * the floor the passenger wants to go to.
+ */
+public final class HallCall {
+
+    private final int floor;
+    private final Direction direction;
+    private final Integer destinationFloor;
+
+    /**
+     * UP or DOWN button pressed at the given floor.
+     */
+    public HallCall(int floor, Direction direction) {
+        if (direction == null) {
+            throw new InvalidRequest("Direction must be UP or DOWN");
+        }
+        this.floor = floor;
+        this.direction = direction;
+        this.destinationFloor = null;
+    }
+
+    /**
+     * Destination floor entered at the given floor.
+     */
+    public HallCall(int floor, int destinationFloor) {
+        if (floor == destinationFloor) {
+            throw new InvalidRequest("Destination floor " + destinationFloor + " is the floor the call is made from");
+        }
+        this.floor = floor;
+        this.direction = destinationFloor > floor ? Direction.UP : Direction.DOWN;
+        this.destinationFloor = destinationFloor;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public boolean hasDestination() {
+        return destinationFloor != null;
+    }
+
+    /**
+     * @throws IllegalStateException if the call has no destination
+     * @see #hasDestination()
+     */
+    public int getDestinationFloor() {
+        if (destinationFloor == null) {
+            throw new IllegalStateException("Call " + this + " has no destination");
+        }
+        return destinationFloor;
+    }
+
+    @Override
+    public String toString() {
+        return "{floor=" + floor +
+                ", direction=" + direction +
+                (destinationFloor != null ? ", destination=" + destinationFloor : "") +
+                "}";
+    }
+}
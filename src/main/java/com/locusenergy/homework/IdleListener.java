@@ -0,0 +1,18 @@
+package com.locusenergy.homework;
+
+/**
+ * Receives a notification when an elevator has stood idle for a while, e.g. to send it where the next call is
+ * likely to come from.
+ * <p>
+ * Notifications are sent after the elevator has released its internal lock, so it is safe to call the elevator
+ * (or any other elevator) from {@link #idleTimedOut(Elevator)}.
+ *
+ * @see Elevator#setIdleListener(IdleListener, long)
+ */
+public interface IdleListener {
+
+    /**
+     * Called once per idle period, when the elevator has been idle for the timeout.
+     */
+    void idleTimedOut(Elevator elevator);
+}
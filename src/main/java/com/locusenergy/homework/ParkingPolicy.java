@@ -0,0 +1,26 @@
+package com.locusenergy.homework;
+
+import java.util.Set;
+
+/**
+ * Decides where an idle elevator waits for the next call. {@link Building} calls all methods of a policy one at a
+ * time, under the same lock as the {@link DispatchStrategy} of the group, so implementations do not need to be
+ * thread-safe. A policy instance must not be shared between groups.
+ *
+ * @see ElevatorGroup
+ */
+public interface ParkingPolicy {
+
+    /**
+     * Called for every call made to the group, before it is dispatched.
+     */
+    void callMade(HallCall call, long timeMillis);
+
+    /**
+     * Called when the elevator has been idle for the idle timeout of the group.
+     *
+     * @param elevators all elevators of the group, including the idle one.
+     * @return floor the elevator should park at, or its current floor to leave it where it is.
+     */
+    int selectParkingFloor(Elevator elevator, Set<Elevator> elevators, long timeMillis);
+}
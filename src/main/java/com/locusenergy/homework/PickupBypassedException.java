@@ -0,0 +1,13 @@
+package com.locusenergy.homework;
+
+/**
+ * Completes a pickup when the elevator was too full to stop for it and passed the floor by.
+ *
+ * @see Elevator#requestPickup(int)
+ */
+public class PickupBypassedException extends RuntimeException {
+
+    public PickupBypassedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.ParkingPolicy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Predicts where the next calls come from by counting the calls made from every floor within a sliding window,
+ * e.g. the last 5 minutes, and parks idle elevators at the busiest floors: the first one at the floor with most
+ * calls, the next one at the floor with the second most calls, and so on. When the morning peak starts, the lobby
+ * gets most calls within minutes and idle elevators start to wait there.
+ * <p>
+ * While there were no calls in the window, the fallback policy decides, e.g. a {@link HomeFloorParkingPolicy}
+ * with the lobby.
+ */
+public class DemandParkingPolicy implements ParkingPolicy {
+
+    private final long windowMillis;
+    private final ParkingPolicy fallback;
+    private final ParkedElevators parked = new ParkedElevators();
+    // calls within the window, oldest first
+    private final Queue<RecentCall> recentCalls = new ArrayDeque<RecentCall>();
+    private final Map<Integer, Integer> callsByFloor = new HashMap<Integer, Integer>();
+
+    /**
+     * Leaves idle elevators where they are while there is no demand.
+     */
+    public DemandParkingPolicy(long windowMillis) {
+        this(windowMillis, null);
+    }
+
+    /**
+     * @param fallback null to leave idle elevators where they are while there is no demand.
+     */
+    public DemandParkingPolicy(long windowMillis, ParkingPolicy fallback) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Window must be greater than 0. Given value: " + windowMillis);
+        }
+        this.windowMillis = windowMillis;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void callMade(HallCall call, long timeMillis) {
+        forgetCallsBefore(timeMillis - windowMillis);
+        recentCalls.add(new RecentCall(call.getFloor(), timeMillis));
+        Integer count = callsByFloor.get(call.getFloor());
+        callsByFloor.put(call.getFloor(), count == null ? 1 : count + 1);
+        if (fallback != null) {
+            fallback.callMade(call, timeMillis);
+        }
+    }
+
+    @Override
+    public int selectParkingFloor(Elevator elevator, Set<Elevator> elevators, long timeMillis) {
+        forgetCallsBefore(timeMillis - windowMillis);
+        if (callsByFloor.isEmpty()) {
+            return fallback != null ? fallback.selectParkingFloor(elevator, elevators, timeMillis) : elevator.currentFloor();
+        }
+        final int currentFloor = elevator.currentFloor();
+        List<Integer> floors = new ArrayList<Integer>(callsByFloor.keySet());
+        // busiest first, the nearest of equally busy floors first
+        Collections.sort(floors, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                int byCalls = callsByFloor.get(second).compareTo(callsByFloor.get(first));
+                if (byCalls != 0) {
+                    return byCalls;
+                }
+                return Integer.compare(Math.abs(first - currentFloor), Math.abs(second - currentFloor));
+            }
+        });
+        int best = currentFloor;
+        for (int floor : floors) {
+            if (ParkedElevators.canReach(elevator, floor) && !parked.isTaken(floor, elevator, elevators)) {
+                best = floor;
+                break;
+            }
+        }
+        parked.sent(elevator, best);
+        return best;
+    }
+
+    /**
+     * @return number of calls from the floor within the window, as of the last call or parking decision.
+     */
+    public int getRecentCalls(int floor) {
+        Integer count = callsByFloor.get(floor);
+        return count == null ? 0 : count;
+    }
+
+    private void forgetCallsBefore(long timeMillis) {
+        while (!recentCalls.isEmpty() && recentCalls.peek().timeMillis <= timeMillis) {
+            int floor = recentCalls.remove().floor;
+            int count = callsByFloor.get(floor) - 1;
+            if (count == 0) {
+                callsByFloor.remove(floor);
+            } else {
+                callsByFloor.put(floor, count);
+            }
+        }
+    }
+
+    private static class RecentCall {
+        private final int floor;
+        private final long timeMillis;
+
+        private RecentCall(int floor, long timeMillis) {
+            this.floor = floor;
+            this.timeMillis = timeMillis;
+        }
+    }
+}
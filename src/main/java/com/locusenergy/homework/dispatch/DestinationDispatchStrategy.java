@@ -0,0 +1,142 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.DispatchStrategy;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorState;
+import com.locusenergy.homework.HallCall;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Destination dispatch: passengers enter their destination floor at the hall panel, and passengers going to the same
+ * floor are grouped into the same elevator.
+ * <p>
+ * Every elevator which can pick the passenger up is estimated by the total trip time: its ETA at the calling floor,
+ * then travel to the destination with the planned stops on the way, plus the dwell of every stop the passenger adds.
+ * Stops this elevator already makes (calls assigned to it earlier from the same floor or to the same destination)
+ * cost nothing extra, so grouped passengers make fewer stops in total. Calls without a destination are estimated
+ * the same way, just without the second leg.
+ */
+public class DestinationDispatchStrategy implements DispatchStrategy {
+
+    private final EtaCalculator etaCalculator;
+    // pick-up and destination floors of the calls assigned to each elevator and not visited yet
+    private final Map<Elevator, Set<Integer>> plannedStops = new LinkedHashMap<Elevator, Set<Integer>>();
+    private final Map<Elevator, ElevatorState> lastStates = new HashMap<Elevator, ElevatorState>();
+
+    public DestinationDispatchStrategy() {
+        this(new EtaCalculator());
+    }
+
+    /**
+     * @param etaCalculator travel and dwell times to estimate trips with
+     */
+    public DestinationDispatchStrategy(EtaCalculator etaCalculator) {
+        this.etaCalculator = etaCalculator;
+    }
+
+    @Override
+    public void stateChanged(Elevator elevator) {
+        Set<Integer> stops = plannedStops.get(elevator);
+        if (stops == null) {
+            stops = new HashSet<Integer>();
+            plannedStops.put(elevator, stops);
+        }
+        ElevatorState state = elevator.snapshot();
+        ElevatorState previous = lastStates.put(elevator, state);
+        if (!state.isBusy()) {
+            stops.clear();
+        } else if (stoppedAtCurrentFloor(previous, state)) {
+            stops.remove(state.getCurrentFloor());
+        }
+    }
+
+    /**
+     * A car passing a planned floor on its way does not stop there: the floor is visited only when the car
+     * reaches it as one of its pending stops.
+     */
+    private static boolean stoppedAtCurrentFloor(ElevatorState previous, ElevatorState state) {
+        int floor = state.getCurrentFloor();
+        return previous != null && previous.hasPendingStopAt(floor) && !state.hasPendingStopAt(floor);
+    }
+
+    @Override
+    public Elevator selectElevator(HallCall call) {
+        Elevator best = null;
+        long bestCost = Long.MAX_VALUE;
+        for (Map.Entry<Elevator, Set<Integer>> entry : plannedStops.entrySet()) {
+            ElevatorState state = entry.getKey().snapshot();
+            if (canPickUp(state, entry.getValue(), call)) {
+                long cost = estimate(state, entry.getValue(), call);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = entry.getKey();
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Besides the usual rule, an elevator which still stands at the calling floor for an earlier call
+     * going the same way takes the passenger too.
+     */
+    private boolean canPickUp(ElevatorState state, Set<Integer> stops, HallCall call) {
+        if (state.canPickUp(call.getFloor(), call.getDirection())) {
+            return true;
+        }
+        return state.getCurrentFloor() == call.getFloor()
+                && state.getDirection() == call.getDirection()
+                && stops.contains(call.getFloor());
+    }
+
+    private long estimate(ElevatorState state, Set<Integer> stops, HallCall call) {
+        long cost = etaCalculator.estimate(state, call.getFloor());
+        if (!stops.contains(call.getFloor())) {
+            cost += etaCalculator.getStopDwellMillis();
+        }
+        if (call.hasDestination()) {
+            int destination = call.getDestinationFloor();
+            cost += Math.abs(destination - call.getFloor()) * etaCalculator.getFloorTravelMillis()
+                    + stopsCost(stops, call.getFloor(), destination);
+        }
+        return cost;
+    }
+
+    /**
+     * @return cost of the planned stops strictly between "from" and "to", plus the stop at "to" if this elevator
+     * does not stop there anyway.
+     */
+    private long stopsCost(Set<Integer> stops, int from, int to) {
+        int count = stops.contains(to) ? 0 : 1;
+        int low = Math.min(from, to);
+        int high = Math.max(from, to);
+        for (int stop : stops) {
+            if (stop > low && stop < high) {
+                count++;
+            }
+        }
+        return count * etaCalculator.getStopDwellMillis();
+    }
+
+    @Override
+    public void callAssigned(HallCall call, Elevator elevator) {
+        Set<Integer> stops = plannedStops.get(elevator);
+        stops.add(call.getFloor());
+        if (call.hasDestination()) {
+            stops.add(call.getDestinationFloor());
+        }
+    }
+
+    /**
+     * @return true if the elevator is planned to stop at the floor for a call assigned to it.
+     */
+    boolean hasPlannedStop(Elevator elevator, int floor) {
+        Set<Integer> stops = plannedStops.get(elevator);
+        return stops != null && stops.contains(floor);
+    }
+}
@@ -0,0 +1,110 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorState;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.locusenergy.homework.Direction.DOWN;
+import static com.locusenergy.homework.Direction.UP;
+
+/**
+ * Elevators grouped by what they are doing (idle, going up, going down) and sorted by their current floor, so that
+ * the nearest elevator able to take a call is found in O(log n) instead of scanning all elevators.
+ * <p>
+ * The index is updated incrementally: {@link #update(Elevator)} must be called every time an elevator changes its
+ * state. Elevators which do not accept calls are left out of the index. This class is not thread-safe, the owner must guard it.
+ */
+class ElevatorIndex {
+
+    private final TreeMap<Integer, Set<Elevator>> idle = new TreeMap<Integer, Set<Elevator>>();
+    private final TreeMap<Integer, Set<Elevator>> goingUp = new TreeMap<Integer, Set<Elevator>>();
+    private final TreeMap<Integer, Set<Elevator>> goingDown = new TreeMap<Integer, Set<Elevator>>();
+
+    // where each elevator is registered now
+    private final Map<Elevator, TreeMap<Integer, Set<Elevator>>> groups = new HashMap<Elevator, TreeMap<Integer, Set<Elevator>>>();
+    private final Map<Elevator, Integer> floors = new HashMap<Elevator, Integer>();
+
+    /**
+     * Re-reads the elevator state (one consistent snapshot) and moves it to the right place in the index.
+     */
+    void update(Elevator elevator) {
+        TreeMap<Integer, Set<Elevator>> oldGroup = groups.get(elevator);
+        if (oldGroup != null) {
+            remove(oldGroup, floors.get(elevator), elevator);
+        }
+        ElevatorState state = elevator.snapshot();
+        if (!state.acceptsCalls()) {
+            // e.g. a full elevator takes no calls until passengers get off
+            groups.remove(elevator);
+            floors.remove(elevator);
+            return;
+        }
+        TreeMap<Integer, Set<Elevator>> newGroup = groupFor(state);
+        int floor = state.getCurrentFloor();
+        add(newGroup, floor, elevator);
+        groups.put(elevator, newGroup);
+        floors.put(elevator, floor);
+    }
+
+    /**
+     * @return nearest elevator which is either idle or is going in the requested direction and has not passed the
+     * floor yet. null if there is no such elevator.
+     */
+    Elevator findNearest(int floor, Direction direction) {
+        Candidate best = new Candidate();
+        best.consider(idle.floorEntry(floor), floor);
+        best.consider(idle.ceilingEntry(floor), floor);
+        if (direction == UP) {
+            best.consider(goingUp.lowerEntry(floor), floor);
+        } else if (direction == DOWN) {
+            best.consider(goingDown.higherEntry(floor), floor);
+        }
+        return best.elevator;
+    }
+
+    private TreeMap<Integer, Set<Elevator>> groupFor(ElevatorState state) {
+        if (!state.isBusy()) {
+            return idle;
+        }
+        return state.getDirection() == UP ? goingUp : goingDown;
+    }
+
+    private static void add(TreeMap<Integer, Set<Elevator>> group, int floor, Elevator elevator) {
+        Set<Elevator> elevators = group.get(floor);
+        if (elevators == null) {
+            elevators = new LinkedHashSet<Elevator>();
+            group.put(floor, elevators);
+        }
+        elevators.add(elevator);
+    }
+
+    private static void remove(TreeMap<Integer, Set<Elevator>> group, int floor, Elevator elevator) {
+        Set<Elevator> elevators = group.get(floor);
+        elevators.remove(elevator);
+        if (elevators.isEmpty()) {
+            group.remove(floor);
+        }
+    }
+
+    private static class Candidate {
+        private Elevator elevator;
+        private int distance = Integer.MAX_VALUE;
+
+        private void consider(Map.Entry<Integer, Set<Elevator>> entry, int floor) {
+            if (entry == null) {
+                return;
+            }
+            int entryDistance = Math.abs(entry.getKey() - floor);
+            if (entryDistance < distance) {
+                distance = entryDistance;
+                elevator = entry.getValue().iterator().next();
+            }
+        }
+    }
+}
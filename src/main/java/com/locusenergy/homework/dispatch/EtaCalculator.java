@@ -0,0 +1,111 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.ElevatorState;
+
+import static com.locusenergy.homework.Direction.UP;
+
+/**
+ * Estimates when an elevator can arrive at a floor if the floor is requested now.
+ * <p>
+ * The elevator is followed through its pending stops in the order it serves them: it keeps going in its current
+ * direction while there are stops ahead, stops at each of them, then turns around. Every floor travelled costs
+ * floorTravelMillis, every stop before the target floor costs stopDwellMillis.
+ */
+public class EtaCalculator {
+
+    /**
+     * Per-floor travel time and per-stop dwell of the simulated elevators, one step each.
+     */
+    public static final long DEFAULT_FLOOR_TRAVEL_MILLIS = 100;
+    public static final long DEFAULT_STOP_DWELL_MILLIS = 100;
+
+    private final long floorTravelMillis;
+    private final long stopDwellMillis;
+
+    public EtaCalculator() {
+        this(DEFAULT_FLOOR_TRAVEL_MILLIS, DEFAULT_STOP_DWELL_MILLIS);
+    }
+
+    /**
+     * @param floorTravelMillis time to travel one floor
+     * @param stopDwellMillis   time spent at a floor where the elevator stops
+     */
+    public EtaCalculator(long floorTravelMillis, long stopDwellMillis) {
+        if (floorTravelMillis < 0 || stopDwellMillis < 0) {
+            throw new IllegalArgumentException("Times must not be negative. Given values: " + floorTravelMillis + ", " + stopDwellMillis);
+        }
+        this.floorTravelMillis = floorTravelMillis;
+        this.stopDwellMillis = stopDwellMillis;
+    }
+
+    public long getFloorTravelMillis() {
+        return floorTravelMillis;
+    }
+
+    public long getStopDwellMillis() {
+        return stopDwellMillis;
+    }
+
+    /**
+     * @param state elevator state
+     * @param floor target floor
+     * @return estimated time in milliseconds until the elevator reaches the floor
+     */
+    public long estimate(ElevatorState state, int floor) {
+        int position = state.getCurrentFloor();
+        Direction direction = state.getDirection();
+        if (position == floor) {
+            return 0;
+        }
+        if (direction == null) {
+            return Math.abs(floor - position) * floorTravelMillis;
+        }
+        long time = 0;
+        if (state.hasPendingStopAt(position)) {
+            time += stopDwellMillis;
+        }
+        boolean floorAhead = direction == UP ? floor > position : floor < position;
+        if (floorAhead) {
+            time += Math.abs(floor - position) * floorTravelMillis;
+            time += stopsBetween(state, position, floor) * stopDwellMillis;
+            return time;
+        }
+        // serve everything ahead, turn around and come back past the starting position
+        int turn = lastStopAhead(state, position, direction);
+        time += (Math.abs(turn - position) + Math.abs(turn - floor)) * floorTravelMillis;
+        int stopsAhead = stopsBetween(state, position, turn) + (turn != position ? 1 : 0);
+        time += (stopsAhead + stopsBetween(state, floor, position)) * stopDwellMillis;
+        return time;
+    }
+
+    /**
+     * @return the farthest pending stop in the given direction, or the position itself if there is none.
+     */
+    private static int lastStopAhead(ElevatorState state, int position, Direction direction) {
+        int count = state.getPendingStopsCount();
+        if (count == 0) {
+            return position;
+        }
+        if (direction == UP) {
+            return Math.max(position, state.getPendingStop(count - 1));
+        }
+        return Math.min(position, state.getPendingStop(0));
+    }
+
+    /**
+     * @return number of pending stops strictly between the two floors
+     */
+    private static int stopsBetween(ElevatorState state, int from, int to) {
+        int low = Math.min(from, to);
+        int high = Math.max(from, to);
+        int count = 0;
+        for (int i = 0; i < state.getPendingStopsCount(); i++) {
+            int stop = state.getPendingStop(i);
+            if (stop > low && stop < high) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
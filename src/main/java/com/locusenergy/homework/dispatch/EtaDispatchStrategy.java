@@ -0,0 +1,64 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.DispatchStrategy;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorState;
+import com.locusenergy.homework.HallCall;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sends the elevator with the smallest estimated time of arrival, counting the stops it already has to make.
+ * Unlike {@link NearestCarDispatchStrategy}, busy elevators going the other way are considered too (they will
+ * come back), so a call never waits in the queue while there are elevators in the building which accept calls.
+ * <p>
+ * Every call looks at every elevator, so for very large banks the nearest car index is cheaper.
+ * <p>
+ * By default every elevator estimates its own arrival (see {@link Elevator#estimateArrivalMillis(int)}), so cars of
+ * different speeds are compared by their actual timing.
+ */
+public class EtaDispatchStrategy implements DispatchStrategy {
+
+    // null to let every elevator estimate its own arrival
+    private final EtaCalculator etaCalculator;
+    private final Set<Elevator> elevators = new LinkedHashSet<Elevator>();
+
+    public EtaDispatchStrategy() {
+        this.etaCalculator = null;
+    }
+
+    /**
+     * @param etaCalculator timing to estimate every elevator with, whatever its own timing is
+     */
+    public EtaDispatchStrategy(EtaCalculator etaCalculator) {
+        if (etaCalculator == null) {
+            throw new IllegalArgumentException("ETA calculator must not be null");
+        }
+        this.etaCalculator = etaCalculator;
+    }
+
+    @Override
+    public void stateChanged(Elevator elevator) {
+        elevators.add(elevator);
+    }
+
+    @Override
+    public Elevator selectElevator(HallCall call) {
+        Elevator best = null;
+        long bestEta = Long.MAX_VALUE;
+        for (Elevator elevator : elevators) {
+            ElevatorState state = elevator.snapshot();
+            if (!state.acceptsCalls()) {
+                continue;
+            }
+            long eta = etaCalculator != null ? etaCalculator.estimate(state, call.getFloor())
+                    : elevator.estimateArrivalMillis(call.getFloor());
+            if (eta < bestEta) {
+                bestEta = eta;
+                best = elevator;
+            }
+        }
+        return best;
+    }
+}
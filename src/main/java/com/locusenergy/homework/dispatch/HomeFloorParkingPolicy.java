@@ -0,0 +1,50 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.ParkingPolicy;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Parks idle elevators at home floors: the lobby, or one home floor per zone of a tall building. Every idle elevator
+ * goes to the nearest home floor where no other elevator waits yet, so that e.g. with 3 zones and 3 idle elevators
+ * every zone has one ready. An elevator which finds all home floors taken stays where it is.
+ */
+public class HomeFloorParkingPolicy implements ParkingPolicy {
+
+    private final int[] homeFloors;
+    private final ParkedElevators parked = new ParkedElevators();
+
+    /**
+     * @param homeFloors in order of preference, used when two home floors are equally near.
+     */
+    public HomeFloorParkingPolicy(int... homeFloors) {
+        if (homeFloors.length == 0) {
+            throw new IllegalArgumentException("At least one home floor is required");
+        }
+        this.homeFloors = Arrays.copyOf(homeFloors, homeFloors.length);
+    }
+
+    @Override
+    public void callMade(HallCall call, long timeMillis) {
+    }
+
+    @Override
+    public int selectParkingFloor(Elevator elevator, Set<Elevator> elevators, long timeMillis) {
+        int currentFloor = elevator.currentFloor();
+        int best = currentFloor;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int floor : homeFloors) {
+            int distance = Math.abs(floor - currentFloor);
+            if (distance < bestDistance && ParkedElevators.canReach(elevator, floor)
+                    && !parked.isTaken(floor, elevator, elevators)) {
+                best = floor;
+                bestDistance = distance;
+            }
+        }
+        parked.sent(elevator, best);
+        return best;
+    }
+}
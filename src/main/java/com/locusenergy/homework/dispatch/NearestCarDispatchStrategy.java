@@ -0,0 +1,24 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.DispatchStrategy;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+
+/**
+ * Sends the nearest elevator which is either idle or going in the requested direction and has not passed the
+ * calling floor yet. Default strategy of {@link com.locusenergy.homework.Building}.
+ */
+public class NearestCarDispatchStrategy implements DispatchStrategy {
+
+    private final ElevatorIndex index = new ElevatorIndex();
+
+    @Override
+    public void stateChanged(Elevator elevator) {
+        index.update(elevator);
+    }
+
+    @Override
+    public Elevator selectElevator(HallCall call) {
+        return index.findNearest(call.getFloor(), call.getDirection());
+    }
+}
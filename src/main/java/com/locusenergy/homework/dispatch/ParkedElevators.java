@@ -0,0 +1,51 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Floors taken by idle elevators of a group, so that a parking policy spreads them over its floors instead of
+ * sending them all to the same one. This class is not thread-safe, the owner must guard it.
+ */
+class ParkedElevators {
+
+    // floor each elevator was last sent to park at
+    private final Map<Elevator, Integer> parkingFloors = new HashMap<Elevator, Integer>();
+
+    void sent(Elevator elevator, int floor) {
+        parkingFloors.put(elevator, floor);
+    }
+
+    /**
+     * @return true if an elevator other than the given one waits at the floor, or is on its way to park there.
+     */
+    boolean isTaken(int floor, Elevator elevator, Set<Elevator> elevators) {
+        for (Elevator other : elevators) {
+            if (other == elevator) {
+                continue;
+            }
+            ElevatorState state = other.snapshot();
+            if (!state.isBusy()) {
+                if (state.getCurrentFloor() == floor) {
+                    return true;
+                }
+            } else {
+                // a parking trip has a single stop
+                Integer parkingFloor = parkingFloors.get(other);
+                if (parkingFloor != null && parkingFloor == floor
+                        && state.getPendingStopsCount() == 1 && state.getPendingStop(0) == floor) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean canReach(Elevator elevator, int floor) {
+        return floor >= elevator.getMinimumFloor() && floor <= elevator.getTopFloor();
+    }
+}
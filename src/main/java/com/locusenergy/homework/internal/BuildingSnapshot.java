@@ -0,0 +1,315 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.DispatchStrategy;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorGroup;
+import com.locusenergy.homework.ElevatorState;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.simulation.Clock;
+import com.locusenergy.homework.simulation.RealTimeClock;
+import com.locusenergy.homework.simulation.Scheduler;
+import com.locusenergy.homework.simulation.Ticker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Saves a building with all its elevators into a compact binary snapshot and builds a new one from it, e.g. to fork
+ * many studies from a state reached after a long warm-up.
+ * <p>
+ * A snapshot keeps, for every elevator, its name, floor limits, step time, current floor, direction, pending stops, capacity,
+ * the passengers on board with their destinations and its express run with the stops put aside for it, and the calls
+ * of the building still waiting for an elevator. It also keeps the elevator groups: their names, members, served
+ * floors and the class of their dispatch strategy. Elevators are read one by one, each at a consistent moment,
+ * so take the snapshot while the building is paused (e.g. between runs of a
+ * {@link com.locusenergy.homework.simulation.DiscreteEventScheduler}) to get one consistent moment for all of them.
+ * Listeners, futures, parking policies and the state of the dispatch strategies are not saved: the strategies of the
+ * restored building learn about their elevators from their restored state, and waiting calls are made again.
+ * A building with one group gets the dispatch strategy given to restore(). With several groups, every group gets
+ * a new instance of its saved strategy class, which needs a public no-argument constructor.
+ * <p>
+ * Only elevators created by {@link ElevatorFactory} can be saved.
+ */
+public class BuildingSnapshot {
+
+    private static final int MAGIC = 0x454c5653; // "ELVS"
+    private static final int VERSION = 5;
+
+    private BuildingSnapshot() {
+    }
+
+    public static void write(Building building, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(building.getNumberOfFloors());
+        data.writeInt(building.getElevators().size());
+        Map<Elevator, Integer> indexes = new IdentityHashMap<Elevator, Integer>();
+        for (Elevator elevator : building.getElevators()) {
+            indexes.put(elevator, indexes.size());
+            if (!(elevator instanceof ElevatorImpl)) {
+                throw new IllegalArgumentException("Elevator " + elevator.getName() + " was not created by ElevatorFactory");
+            }
+            ElevatorImpl impl = (ElevatorImpl) elevator;
+            ElevatorState state = impl.snapshot();
+            data.writeUTF(impl.getName());
+            data.writeInt(impl.getMinimumFloor());
+            data.writeInt(impl.getTopFloor());
+            data.writeLong(impl.getStepMillis());
+            data.writeInt(state.getCurrentFloor());
+            writeDirection(data, state.getDirection());
+            data.writeInt(state.getPendingStopsCount());
+            for (int i = 0; i < state.getPendingStopsCount(); i++) {
+                data.writeInt(state.getPendingStop(i));
+            }
+            data.writeInt(state.getCapacity());
+            for (int floor = impl.getMinimumFloor(); floor <= impl.getTopFloor(); floor++) {
+                data.writeInt(impl.getAlightingCount(floor));
+            }
+            data.writeBoolean(state.isExpress());
+            int[] suspended = impl.getSuspendedStops();
+            data.writeInt(suspended.length);
+            for (int floor : suspended) {
+                data.writeInt(floor);
+            }
+        }
+        List<ElevatorGroup> groups = building.getGroups();
+        data.writeInt(groups.size());
+        for (ElevatorGroup group : groups) {
+            data.writeUTF(group.getName());
+            data.writeUTF(group.getDispatchStrategy().getClass().getName());
+            int servedCount = 0;
+            for (int floor = group.getLowestFloor(); floor >= 0 && floor <= group.getHighestFloor(); floor++) {
+                if (group.serves(floor)) {
+                    servedCount++;
+                }
+            }
+            data.writeInt(servedCount);
+            for (int floor = group.getLowestFloor(); floor >= 0 && floor <= group.getHighestFloor(); floor++) {
+                if (group.serves(floor)) {
+                    data.writeInt(floor);
+                }
+            }
+            data.writeInt(group.getElevators().size());
+            for (Elevator elevator : group.getElevators()) {
+                data.writeInt(indexes.get(elevator));
+            }
+        }
+        List<HallCall> pendingCalls = building.getPendingCalls();
+        data.writeInt(pendingCalls.size());
+        for (HallCall call : pendingCalls) {
+            data.writeInt(call.getFloor());
+            writeDirection(data, call.getDirection());
+            data.writeInt(call.hasDestination() ? call.getDestinationFloor() : 0);
+        }
+        data.flush();
+    }
+
+    /**
+     * Builds the saved building with elevators driven by the scheduler, see
+     * {@link ElevatorFactory#createElevator(String, int, int, int, Scheduler)}.
+     */
+    public static Building restore(InputStream in, DispatchStrategy dispatchStrategy, final Scheduler scheduler) throws IOException {
+        return restore(in, dispatchStrategy, scheduler, new Starter() {
+            @Override
+            public void start(ElevatorImpl elevator) {
+                elevator.attachTo(scheduler);
+            }
+        });
+    }
+
+    /**
+     * Builds the saved building with started elevators, see
+     * {@link ElevatorFactory#createElevator(String, int, int, int, ExecutionMode, Clock)}.
+     */
+    public static Building restore(InputStream in, DispatchStrategy dispatchStrategy, final ExecutionMode mode,
+                                   final Clock clock) throws IOException {
+        if (mode == ExecutionMode.SHARED_EXECUTOR && clock != RealTimeClock.INSTANCE) {
+            // checked here as well, so that no elevator is started before the first one fails
+            throw new IllegalArgumentException(mode + " supports real time only. Given clock: " + clock);
+        }
+        return restore(in, dispatchStrategy, clock, new Starter() {
+            @Override
+            public void start(ElevatorImpl elevator) {
+                ElevatorFactory.start(elevator, mode, clock);
+            }
+        });
+    }
+
+    public static Building restore(InputStream in, DispatchStrategy dispatchStrategy) throws IOException {
+        return restore(in, dispatchStrategy, ExecutionMode.PLATFORM_THREAD, RealTimeClock.INSTANCE);
+    }
+
+    private interface Starter {
+        void start(ElevatorImpl elevator);
+    }
+
+    private static Building restore(InputStream in, DispatchStrategy dispatchStrategy, Ticker ticker, Starter starter)
+            throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int magic = data.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a building snapshot: wrong magic number " + Integer.toHexString(magic));
+        }
+        int version = data.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported building snapshot version " + version);
+        }
+        int numberOfFloors = data.readInt();
+        int elevatorsCount = data.readInt();
+        List<ElevatorImpl> restored = new ArrayList<ElevatorImpl>(elevatorsCount);
+        for (int i = 0; i < elevatorsCount; i++) {
+            String name = data.readUTF();
+            int minimumFloor = data.readInt();
+            int topFloor = data.readInt();
+            // versions before 5 had one step time for all elevators
+            long stepMillis = version >= 5 ? data.readLong() : ElevatorImpl.STEP_MILLIS;
+            int currentFloor = data.readInt();
+            Direction direction = readDirection(data);
+            int[] stops = new int[data.readInt()];
+            for (int j = 0; j < stops.length; j++) {
+                stops[j] = data.readInt();
+            }
+            // version 1 had no passengers
+            int capacity = ElevatorState.UNLIMITED;
+            int[] alighting = new int[topFloor - minimumFloor + 1];
+            int load = 0;
+            if (version >= 2) {
+                capacity = data.readInt();
+                for (int j = 0; j < alighting.length; j++) {
+                    alighting[j] = data.readInt();
+                    load += alighting[j];
+                }
+            }
+            // versions before 3 had no express runs
+            boolean express = false;
+            int[] suspended = new int[0];
+            if (version >= 3) {
+                express = data.readBoolean();
+                suspended = new int[data.readInt()];
+                for (int j = 0; j < suspended.length; j++) {
+                    suspended[j] = data.readInt();
+                }
+            }
+            if (stepMillis <= 0) {
+                throw new IOException("Malformed building snapshot: step time " + stepMillis + " of elevator " + name);
+            }
+            ElevatorImpl elevator = new ElevatorImpl(name, currentFloor, minimumFloor, topFloor, stepMillis);
+            elevator.restoreState(new ElevatorState(currentFloor, direction, stops, load, capacity, express),
+                    alighting, suspended);
+            restored.add(elevator);
+        }
+        // versions before 4 had one group of all elevators
+        List<SavedGroup> savedGroups = null;
+        if (version >= 4) {
+            savedGroups = new ArrayList<SavedGroup>();
+            int groupsCount = data.readInt();
+            for (int i = 0; i < groupsCount; i++) {
+                SavedGroup group = new SavedGroup(data.readUTF(), data.readUTF());
+                group.servedFloors = new int[data.readInt()];
+                for (int j = 0; j < group.servedFloors.length; j++) {
+                    group.servedFloors[j] = data.readInt();
+                }
+                group.elevators = new int[data.readInt()];
+                for (int j = 0; j < group.elevators.length; j++) {
+                    group.elevators[j] = data.readInt();
+                    if (group.elevators[j] < 0 || group.elevators[j] >= restored.size()) {
+                        throw new IOException("Malformed building snapshot: group " + group.name
+                                + " has elevator " + group.elevators[j]);
+                    }
+                }
+                savedGroups.add(group);
+            }
+        }
+        List<HallCall> pendingCalls = new ArrayList<HallCall>();
+        int pendingCallsCount = data.readInt();
+        for (int i = 0; i < pendingCallsCount; i++) {
+            int floor = data.readInt();
+            Direction direction = readDirection(data);
+            int destinationFloor = data.readInt();
+            pendingCalls.add(destinationFloor != 0 ? new HallCall(floor, destinationFloor) : new HallCall(floor, direction));
+        }
+
+        // the building checks its elevators and groups before any elevator starts, so a broken snapshot leaves
+        // no threads behind
+        Building building;
+        if (savedGroups == null) {
+            building = new Building(numberOfFloors, new LinkedHashSet<Elevator>(restored), dispatchStrategy, ticker);
+        } else {
+            List<ElevatorGroup> groups = new ArrayList<ElevatorGroup>(savedGroups.size());
+            for (SavedGroup group : savedGroups) {
+                Set<Elevator> members = new LinkedHashSet<Elevator>();
+                for (int index : group.elevators) {
+                    members.add(restored.get(index));
+                }
+                DispatchStrategy strategy = savedGroups.size() == 1 ? dispatchStrategy : group.createStrategy();
+                groups.add(new ElevatorGroup(group.name, members, strategy, group.servedFloors));
+            }
+            if (countElevators(groups) != restored.size()) {
+                throw new IOException("Malformed building snapshot: not every elevator is in a group");
+            }
+            building = new Building(numberOfFloors, groups, ticker);
+        }
+        for (ElevatorImpl elevator : restored) {
+            starter.start(elevator);
+        }
+        for (HallCall call : pendingCalls) {
+            building.callElevatorAsync(call);
+        }
+        return building;
+    }
+
+    private static int countElevators(List<ElevatorGroup> groups) {
+        int count = 0;
+        for (ElevatorGroup group : groups) {
+            count += group.getElevators().size();
+        }
+        return count;
+    }
+
+    private static class SavedGroup {
+        private final String name;
+        private final String strategyClass;
+        private int[] servedFloors;
+        private int[] elevators;
+
+        private SavedGroup(String name, String strategyClass) {
+            this.name = name;
+            this.strategyClass = strategyClass;
+        }
+
+        private DispatchStrategy createStrategy() throws IOException {
+            try {
+                return Class.forName(strategyClass).asSubclass(DispatchStrategy.class).getConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IOException("Cannot create dispatch strategy " + strategyClass + " of group " + name
+                        + ". It needs a public no-argument constructor", e);
+            }
+        }
+    }
+
+    private static void writeDirection(DataOutputStream data, Direction direction) throws IOException {
+        data.writeByte(direction == null ? 0 : direction.ordinal() + 1);
+    }
+
+    private static Direction readDirection(DataInputStream data) throws IOException {
+        int code = data.readUnsignedByte();
+        if (code > Direction.values().length) {
+            throw new IOException("Malformed building snapshot: direction code " + code);
+        }
+        return code == 0 ? null : Direction.values()[code - 1];
+    }
+}
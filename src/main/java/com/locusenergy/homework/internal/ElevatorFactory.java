@@ -1,8 +1,21 @@
 package com.locusenergy.homework.internal;
 
 import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.simulation.Clock;
+import com.locusenergy.homework.simulation.ExecutorServiceScheduler;
+import com.locusenergy.homework.simulation.RealTimeClock;
+import com.locusenergy.homework.simulation.Scheduler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ElevatorFactory {
+
+    // created on first use: most applications never need it
+    private static Scheduler sharedScheduler;
+
     /**
      * Creates and initializes an Elevator instance. The new instance is immediately ready to process incoming requests.
      *
@@ -15,8 +28,91 @@ public class ElevatorFactory {
      * @return
      */
     public static Elevator createElevator(String name, int currentFloor, int minimumFloor, int topFloor) {
-        ElevatorImpl elevator = new ElevatorImpl(name, currentFloor, minimumFloor, topFloor);
-        elevator.startThread();
+        return createElevator(name, currentFloor, minimumFloor, topFloor, RealTimeClock.INSTANCE);
+    }
+
+    /**
+     * Same as {@link #createElevator(String, int, int, int)}, but the elevator thread measures its moves with the
+     * given clock, e.g. a {@link com.locusenergy.homework.simulation.ScaledClock} to run faster than real time.
+     *
+     * @param clock clock to time elevator moves with.
+     */
+    public static Elevator createElevator(String name, int currentFloor, int minimumFloor, int topFloor, Clock clock) {
+        return createElevator(name, currentFloor, minimumFloor, topFloor, ExecutionMode.PLATFORM_THREAD, clock);
+    }
+
+    /**
+     * Same as {@link #createElevator(String, int, int, int)}, but lets you choose how the elevator runs.
+     *
+     * @param mode thread per elevator or a shared executor.
+     * @see ExecutionMode
+     */
+    public static Elevator createElevator(String name, int currentFloor, int minimumFloor, int topFloor, ExecutionMode mode) {
+        return createElevator(name, currentFloor, minimumFloor, topFloor, mode, RealTimeClock.INSTANCE);
+    }
+
+    /**
+     * @param mode  thread per elevator or a shared executor.
+     * @param clock clock to time elevator moves with. {@link ExecutionMode#SHARED_EXECUTOR} supports real time only,
+     *              use {@link #createElevator(String, int, int, int, Scheduler)} for anything else.
+     */
+    public static Elevator createElevator(String name, int currentFloor, int minimumFloor, int topFloor,
+                                          ExecutionMode mode, Clock clock) {
+        return start(new ElevatorImpl(name, currentFloor, minimumFloor, topFloor), mode, clock);
+    }
+
+    static Elevator start(ElevatorImpl elevator, ExecutionMode mode, Clock clock) {
+        if (mode == ExecutionMode.SHARED_EXECUTOR) {
+            if (clock != RealTimeClock.INSTANCE) {
+                throw new IllegalArgumentException(mode + " supports real time only. Given clock: " + clock);
+            }
+            elevator.attachTo(sharedScheduler());
+        } else {
+            elevator.useThread(mode.threadFactory(), clock);
+        }
+        elevator.start();
+        return elevator;
+    }
+
+    /**
+     * Creates an Elevator driven by the given scheduler instead of a thread of its own. The elevator only moves while
+     * the scheduler runs its events, so with a {@link com.locusenergy.homework.simulation.DiscreteEventScheduler}
+     * it moves in virtual time.
+     *
+     * @param scheduler scheduler to run elevator moves on. Can be shared by any number of elevators.
+     * @see #createElevator(String, int, int, int)
+     */
+    public static Elevator createElevator(String name, int currentFloor, int minimumFloor, int topFloor, Scheduler scheduler) {
+        return createElevator(name, currentFloor, minimumFloor, topFloor, ElevatorImpl.STEP_MILLIS, scheduler);
+    }
+
+    /**
+     * Same as {@link #createElevator(String, int, int, int, Scheduler)} for an elevator of a different speed. Its
+     * {@link Elevator#estimateArrivalMillis(int)} follows the same timing.
+     *
+     * @param stepMillis time to move one floor or to stop at a floor. Must be greater than 0.
+     */
+    public static Elevator createElevator(String name, int currentFloor, int minimumFloor, int topFloor,
+                                          long stepMillis, Scheduler scheduler) {
+        ElevatorImpl elevator = new ElevatorImpl(name, currentFloor, minimumFloor, topFloor, stepMillis);
+        elevator.attachTo(scheduler);
         return elevator;
     }
+
+    private static synchronized Scheduler sharedScheduler() {
+        if (sharedScheduler == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            ScheduledExecutorService executor = Executors.newScheduledThreadPool(
+                    Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "elevators-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            sharedScheduler = new ExecutorServiceScheduler(executor);
+        }
+        return sharedScheduler;
+    }
 }
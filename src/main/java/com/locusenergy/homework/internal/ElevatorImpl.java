@@ -2,16 +2,45 @@ package com.locusenergy.homework.internal;
 
 import com.locusenergy.homework.Direction;
 import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorState;
+import com.locusenergy.homework.ElevatorStateListener;
 import com.locusenergy.homework.FloorListener;
+import com.locusenergy.homework.IdleListener;
 import com.locusenergy.homework.InvalidRequest;
+import com.locusenergy.homework.PickupBypassedException;
+import com.locusenergy.homework.dispatch.EtaCalculator;
+import com.locusenergy.homework.metrics.ElevatorMetrics;
+import com.locusenergy.homework.simulation.Clock;
+import com.locusenergy.homework.simulation.RealTimeClock;
+import com.locusenergy.homework.simulation.Scheduler;
+import com.locusenergy.homework.simulation.Ticker;
 import org.apache.log4j.Logger;
 
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static com.locusenergy.homework.Direction.DOWN;
 import static com.locusenergy.homework.Direction.UP;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.BYPASSED;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.DIRECTION_CHANGED;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.EXPRESS;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.MOVED;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.PARKING;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.RELEASED;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.REQUESTED;
+import static com.locusenergy.homework.internal.ElevatorTrace.EventType.STOPPED;
 
 /**
  * Use ElevatorFactory.createElevator() to create instances of this class.
@@ -22,95 +51,395 @@ class ElevatorImpl implements Elevator {
 
     private final static Logger LOG = Logger.getLogger(ElevatorImpl.class);
 
+    /**
+     * Default time it takes to move one floor (or to stop at a floor).
+     */
+    static final long STEP_MILLIS = 100;
+
     private final String name;
-    private final TreeSet<Integer> floorsToStopAt = new TreeSet<Integer>();
+    // time of one step of this elevator, in the time of its ticker
+    private final long stepMillis;
+    // estimates arrivals from the timing of this elevator: one step per floor travelled and per stop
+    private final EtaCalculator etaCalculator;
+    private final int traceId;
+    private final FloorSet floorsToStopAt;
     private final int minimumFloor;
     private final int topFloor;
     private final Lock lock = new ReentrantLock();
-    private final Thread thread;
+    private final Condition becameIdle = lock.newCondition();
+    private final Runnable stepEvent = new Runnable() {
+        @Override
+        public void run() {
+            step();
+        }
+    };
+    private final Runnable idleCheckEvent = new Runnable() {
+        @Override
+        public void run() {
+            checkIdleTimeout();
+        }
+    };
+
+    // event-driven mode. written under the lock, read without it by wakeUp()
+    private volatile Scheduler scheduler;
+    // set by whoever schedules the next step, also without the lock. see wakeUp()
+    private final AtomicBoolean stepScheduled = new AtomicBoolean();
+    // thread-per-elevator mode. guarded by lock
+    private Thread thread;
 
-    // TODO "busy" can be replaced with "direction==null"
-    private volatile boolean busy;
-    private volatile int currentFloor;
-    private volatile Direction direction;
+    private volatile boolean shutdown;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    // requests not yet moved to floorsToStopAt
+    private final FloorInbox inbox;
+    // guarded by lock. reused by drainInbox()
+    private final FloorSet requestedFloors;
+    // guarded by lock. set when the current step moved the elevator to another floor
+    private boolean moved;
+
+    // guarded by lock. direction is null when the elevator is not busy
+    private int currentFloor;
+    private Direction direction;
+    // guarded by lock. false from release until state listeners have seen the elevator idle, so that awaitIdle()
+    // does not return before e.g. a dispatcher knows the elevator is available
+    private boolean idleNotified = true;
+    // copy of the fields above for lock-free readers. replaced as a whole every time they change
+    private volatile ElevatorState state;
+    // stops of the published state and the mod count of floorsToStopAt they were taken at. guarded by lock
+    private int[] publishedStops = new int[0];
+    private int publishedStopsModCount;
+    // futures returned from arrivalAt(), by floor. guarded by lock
+    private final Map<Integer, CompletableFuture<Void>> arrivals = new HashMap<Integer, CompletableFuture<Void>>();
+    // arrival reached during the current step, to be completed once the lock is released. guarded by lock
+    private CompletableFuture<Void> reachedArrival;
+
+    // passengers. guarded by lock
+    private int capacity = ElevatorState.UNLIMITED;
+    private int load;
+    // passengers going to each floor, indexed by floor - minimumFloor
+    private final int[] alighting;
+    // stops requested from inside the elevator, a subset of floorsToStopAt
+    private final FloorSet carCalls;
+    // stops requested to pick up passengers, a subset of floorsToStopAt, with their futures
+    private final FloorSet pickups;
+    private final Map<Integer, CompletableFuture<Void>> pickupFutures = new HashMap<Integer, CompletableFuture<Void>>();
+    // pickup reached or passed by during the current step, to be completed once the lock is released
+    private CompletableFuture<Void> reachedPickup;
+    private CompletableFuture<Void> bypassedPickup;
+
+    // parking. guarded by lock
+    private IdleListener idleListener;
+    private long idleTimeoutMillis;
+    private long idleSinceMillis;
+    // true once the listener has been called in the current idle period, or if there is no listener
+    private boolean idleTimedOut = true;
+    private boolean idleCheckScheduled;
+    // the only stop while the elevator is parking, FloorSet.NONE otherwise
+    private int parkingFloor = FloorSet.NONE;
+
+    // express run. guarded by lock
+    // the only stop while the elevator is on an express run, FloorSet.NONE otherwise
+    private int expressFloor = FloorSet.NONE;
+    // stops put aside for the express run, and requests made during it
+    private final FloorSet suspendedStops;
     private volatile FloorListener listener;
+    private final ElevatorMetrics metrics = new ElevatorMetrics();
+    // time base of the metrics: the clock of the thread or the scheduler. guarded by lock
+    private Ticker ticker = RealTimeClock.INSTANCE;
+    private final List<ElevatorStateListener> stateListeners = new CopyOnWriteArrayList<ElevatorStateListener>();
 
 
     ElevatorImpl(String name, int currentFloor, int minimumFloor, int topFloor) {
+        this(name, currentFloor, minimumFloor, topFloor, STEP_MILLIS);
+    }
+
+    /**
+     * @param stepMillis time to move one floor or to stop at a floor
+     */
+    ElevatorImpl(String name, int currentFloor, int minimumFloor, int topFloor, long stepMillis) {
+        if (stepMillis <= 0) {
+            throw new IllegalArgumentException("Step time must be greater than 0. Given value: " + stepMillis);
+        }
         this.name = name;
+        this.stepMillis = stepMillis;
+        this.etaCalculator = new EtaCalculator(stepMillis, stepMillis);
+        this.traceId = ElevatorTrace.register(name);
         this.currentFloor = currentFloor;
         this.minimumFloor = minimumFloor;
         this.topFloor = topFloor;
-        thread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                while (true) {
-                    lock.lock();
-                    try {
-                        if (floorsToStopAt.isEmpty()) {
-                            // TODO can improve this by using something like
-                            //     private static final int MSEC_BEFORE_UNLOCKING_ELEVATOR = 1000;
-                            // and checking time expired since last elevator move.
-                            releaseElevator();
-                        } else {
-                            goToNextRequestedFloor();
-                        }
-                    } finally {
-                        lock.unlock();
-                    }
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+        this.floorsToStopAt = new FloorSet(minimumFloor, topFloor);
+        this.inbox = new FloorInbox(minimumFloor, topFloor);
+        this.requestedFloors = new FloorSet(minimumFloor, topFloor);
+        this.carCalls = new FloorSet(minimumFloor, topFloor);
+        this.pickups = new FloorSet(minimumFloor, topFloor);
+        this.suspendedStops = new FloorSet(minimumFloor, topFloor);
+        this.alighting = new int[topFloor - minimumFloor + 1];
+        this.state = new ElevatorState(currentFloor, null, publishedStops);
+    }
 
-                }
+    /**
+     * Makes one move: stops at the current floor if requested, goes one floor further or releases the elevator
+     * if there is nothing left to do.
+     */
+    void step() {
+        boolean stateChanged;
+        CompletableFuture<Void> arrival;
+        CompletableFuture<Void> pickup;
+        CompletableFuture<Void> bypassed;
+        int visitedFloor;
+        long lockedNanos = lockMeasured();
+        try {
+            stepScheduled.set(false);
+            if (shutdown) {
+                return;
             }
-        });
-
+            stateChanged = drainInbox();
+            moved = false;
+            stateChanged |= makeStep();
+            visitedFloor = moved ? currentFloor : FloorSet.NONE;
+            scheduleStepIfBusy();
+            arrival = reachedArrival;
+            reachedArrival = null;
+            pickup = reachedPickup;
+            reachedPickup = null;
+            bypassed = bypassedPickup;
+            bypassedPickup = null;
+        } finally {
+            unlockMeasured(lockedNanos);
+        }
+        // listeners and futures are called outside of the lock, so that they cannot hold up requests
+        if (visitedFloor != FloorSet.NONE) {
+            notifyListener(visitedFloor);
+        }
+        if (arrival != null) {
+            arrival.complete(null);
+        }
+        if (pickup != null) {
+            pickup.complete(null);
+        }
+        if (bypassed != null) {
+            bypassed.completeExceptionally(new PickupBypassedException(name + " was full at floor " + visitedFloor));
+        }
+        if (stateChanged) {
+            notifyStateListeners();
+        }
+        IdleListener timedOut;
+        lock.lock();
+        try {
+            if (direction == null && !idleNotified) {
+                idleNotified = true;
+                becameIdle.signalAll();
+            }
+            timedOut = idleTimeoutExpired();
+        } finally {
+            lock.unlock();
+        }
+        notifyIdleListener(timedOut);
     }
 
-    private void releaseElevator() {
+    /**
+     * Event-driven elevators make no steps while idle, so they check the idle timeout in a separate event.
+     */
+    private void checkIdleTimeout() {
+        IdleListener timedOut;
         lock.lock();
         try {
-            busy = false;
-            direction = null;
+            idleCheckScheduled = false;
+            timedOut = idleTimeoutExpired();
+            scheduleIdleCheck();
         } finally {
             lock.unlock();
         }
+        notifyIdleListener(timedOut);
+    }
 
+    /**
+     * Must be called with the lock held.
+     *
+     * @return listener to notify, or null if the elevator is busy or the timeout has not expired (or was handled).
+     */
+    private IdleListener idleTimeoutExpired() {
+        if (shutdown || idleTimedOut || direction != null
+                || ticker.currentTimeMillis() - idleSinceMillis < idleTimeoutMillis) {
+            return null;
+        }
+        idleTimedOut = true;
+        return idleListener;
     }
 
-    private void goToNextRequestedFloor() {
-        lock.lock();
+    /**
+     * Must be called with the lock held.
+     */
+    private void scheduleIdleCheck() {
+        if (scheduler != null && !idleCheckScheduled && !idleTimedOut && direction == null && !shutdown) {
+            idleCheckScheduled = true;
+            long delay = Math.max(0, idleSinceMillis + idleTimeoutMillis - ticker.currentTimeMillis());
+            scheduler.schedule(delay, idleCheckEvent);
+        }
+    }
 
-        try {
-            if (needToStopAt(currentFloor)) {
-                LOG.debug(name + ": stopped at floor " + currentFloor + ". Removing it from the list");
-                floorsToStopAt.remove(currentFloor);
+    private void notifyIdleListener(IdleListener timedOut) {
+        if (timedOut != null) {
+            try {
+                timedOut.idleTimedOut(this);
+            } catch (RuntimeException e) {
+                LOG.error(name + ": idle listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     *
+     * @return true if the elevator state has changed.
+     */
+    private boolean makeStep() {
+        if (floorsToStopAt.isEmpty()) {
+            releaseElevator();
+        } else {
+            goToNextRequestedFloor();
+        }
+        return publishState();
+    }
+
+    /**
+     * Must be called with the lock held, after every change of the fields which make up the state.
+     *
+     * @return true if the state is different from the last published one.
+     */
+    private boolean publishState() {
+        ElevatorState published = state;
+        boolean express = expressFloor != FloorSet.NONE;
+        boolean stopsChanged = false;
+        if (floorsToStopAt.getModCount() != publishedStopsModCount) {
+            publishedStopsModCount = floorsToStopAt.getModCount();
+            int[] stops = toArray(floorsToStopAt);
+            // floors may have been added and removed again since
+            if (!Arrays.equals(stops, publishedStops)) {
+                publishedStops = stops;
+                stopsChanged = true;
+            }
+        }
+        if (!stopsChanged && currentFloor == published.getCurrentFloor() && direction == published.getDirection()
+                && load == published.getLoad() && capacity == published.getCapacity()
+                && express == published.isExpress()) {
+            return false;
+        }
+        ElevatorState newState = new ElevatorState(currentFloor, direction, publishedStops, load, capacity, express);
+        if (newState.isBusy() != state.isBusy()) {
+            metrics.busyChanged(newState.isBusy(), ticker.currentTimeMillis());
+        }
+        state = newState;
+        return true;
+    }
+
+    private static int[] toArray(FloorSet floors) {
+        int[] array = new int[floors.size()];
+        int i = 0;
+        for (int floor = floors.first(); floor != FloorSet.NONE; floor = floors.higher(floor)) {
+            array[i++] = floor;
+        }
+        return array;
+    }
+
+    /**
+     * Must be called with the lock held, as all the methods below.
+     */
+    private void releaseElevator() {
+        if (direction != null) {
+            ElevatorTrace.record(RELEASED, ticker, traceId, currentFloor);
+            idleNotified = false;
+            idleSinceMillis = ticker.currentTimeMillis();
+            idleTimedOut = idleListener == null;
+        }
+        direction = null;
+        scheduleIdleCheck();
+    }
+
+    private void goToNextRequestedFloor() {
+        if (!needToStopAt(currentFloor)) {
+            keepMoving();
+        } else if (mustPassBy(currentFloor)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(name + ": full, passing floor " + currentFloor + " by");
+            }
+            ElevatorTrace.record(BYPASSED, ticker, traceId, currentFloor);
+            floorsToStopAt.remove(currentFloor);
+            pickups.remove(currentFloor);
+            bypassedPickup = pickupFutures.remove(currentFloor);
+            if (floorsToStopAt.isEmpty()) {
+                releaseElevator();
             } else {
                 keepMoving();
             }
+        } else {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(name + ": stopped at floor " + currentFloor + ". Removing it from the list");
+            }
+            ElevatorTrace.record(STOPPED, ticker, traceId, currentFloor);
+            metrics.stopped();
+            floorsToStopAt.remove(currentFloor);
+            carCalls.remove(currentFloor);
+            pickups.remove(currentFloor);
+            if (currentFloor == parkingFloor) {
+                parkingFloor = FloorSet.NONE;
+            }
+            if (currentFloor == expressFloor) {
+                resumeStops();
+            }
+            int alightingHere = alighting[currentFloor - minimumFloor];
+            if (alightingHere > 0) {
+                load -= alightingHere;
+                alighting[currentFloor - minimumFloor] = 0;
+                metrics.alighted(alightingHere);
+            }
+            reachedArrival = arrivals.remove(currentFloor);
+            reachedPickup = pickupFutures.remove(currentFloor);
+        }
+    }
 
-        } finally {
-            lock.unlock();
+    /**
+     * Ends the express run at its target floor: the stops put aside are made again, starting from here.
+     */
+    private void resumeStops() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(name + ": express run finished at floor " + currentFloor + ", resuming stops " + suspendedStops);
         }
+        expressFloor = FloorSet.NONE;
+        suspendedStops.remove(currentFloor);
+        for (int floor = suspendedStops.first(); floor != FloorSet.NONE; floor = suspendedStops.higher(floor)) {
+            floorsToStopAt.add(floor);
+        }
+        suspendedStops.clear();
+    }
+
+    /**
+     * Full-load bypass: a full elevator does not stop for a pickup only. The target of an express run is never
+     * passed by.
+     */
+    private boolean mustPassBy(int floor) {
+        return state.isFullyLoaded() && floor != expressFloor && pickups.contains(floor) && !carCalls.contains(floor)
+                && alighting[floor - minimumFloor] == 0;
     }
 
     private void keepMoving() {
         changeDirectionIfNoStopsOnTheWay();
-        LOG.debug(name + ": going " + direction.toString() + " from " + currentFloor + ". " + getFloorsString());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(name + ": going " + direction.toString() + " from " + currentFloor + ". " + getFloorsString());
+        }
         if (direction.equals(UP)) {
             if (currentFloor < topFloor) {
                 currentFloor++;
-                notifyListener();
+                ElevatorTrace.record(MOVED, ticker, traceId, currentFloor);
+                moved = true;
             } else {
                 changeDirection();
             }
         } else if (direction.equals(DOWN)) {
-            if (currentFloor > 1) {
+            if (currentFloor > minimumFloor) {
                 currentFloor--;
-                notifyListener();
+                ElevatorTrace.record(MOVED, ticker, traceId, currentFloor);
+                moved = true;
             } else {
                 changeDirection();
             }
@@ -123,19 +452,19 @@ class ElevatorImpl implements Elevator {
         // TODO what if no stops at all? verify this.
         if (UP.equals(direction) && noStopsHigherThanCurrent()) {
             direction = DOWN;
+            ElevatorTrace.record(DIRECTION_CHANGED, ticker, traceId, currentFloor);
         } else if (DOWN.equals(direction) && noStopsLowerThanCurrent()) {
             direction = UP;
+            ElevatorTrace.record(DIRECTION_CHANGED, ticker, traceId, currentFloor);
         }
     }
 
     private boolean noStopsHigherThanCurrent() {
-        Integer nextFloorUp = floorsToStopAt.higher(currentFloor);
-        return nextFloorUp == null;
+        return floorsToStopAt.higher(currentFloor) == FloorSet.NONE;
     }
 
     private boolean noStopsLowerThanCurrent() {
-        Integer nextFloorDown = floorsToStopAt.lower(currentFloor);
-        return nextFloorDown == null;
+        return floorsToStopAt.lower(currentFloor) == FloorSet.NONE;
     }
 
     private void changeDirection() {
@@ -144,27 +473,175 @@ class ElevatorImpl implements Elevator {
         } else if (DOWN == direction) {
             direction = UP;
         }
+        ElevatorTrace.record(DIRECTION_CHANGED, ticker, traceId, currentFloor);
     }
 
     private boolean needToStopAt(int currentFloor) {
         return floorsToStopAt.contains(currentFloor);
     }
 
+    /**
+     * Never blocks: the floor goes to the inbox and is moved to the stops by whoever holds the lock next.
+     * If that is the elevator itself, the request shows up in the state with its next step.
+     */
     @Override
     public void requestFloor(int floor) {
         checkFloorWithinLimits(floor);
-        lock.lock();
+        if (shutdown) {
+            throw new IllegalStateException(name + " is shut down");
+        }
+        inbox.add(floor);
+        drainInboxIfUnlocked();
+    }
+
+    @Override
+    public void requestFloors(int... floors) {
+        for (int floor : floors) {
+            checkFloorWithinLimits(floor);
+        }
+        if (shutdown) {
+            throw new IllegalStateException(name + " is shut down");
+        }
+        for (int floor : floors) {
+            inbox.add(floor);
+        }
+        drainInboxIfUnlocked();
+    }
+
+    private void drainInboxIfUnlocked() {
+        while (inbox.hasPending()) {
+            long start = System.nanoTime();
+            if (!lock.tryLock()) {
+                // the holder may not be the elevator, and an idle event-driven elevator has no next step
+                wakeUp();
+                return;
+            }
+            long lockedNanos = System.nanoTime();
+            metrics.lockAcquired(lockedNanos - start);
+            boolean stateChanged;
+            try {
+                stateChanged = drainInbox();
+                scheduleStepIfBusy();
+            } finally {
+                unlockMeasured(lockedNanos);
+            }
+            if (stateChanged) {
+                notifyStateListeners();
+            }
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     *
+     * @return true if the elevator state has changed.
+     */
+    private boolean drainInbox() {
+        if (inbox.drainTo(requestedFloors) == 0) {
+            return false;
+        }
+        for (int floor = requestedFloors.first(); floor != FloorSet.NONE; floor = requestedFloors.higher(floor)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(name + ": requested floor: " + floor + ". current floor: " + currentFloor + ", current direction: " + direction);
+            }
+            ElevatorTrace.record(REQUESTED, ticker, traceId, floor);
+            addStop(floor);
+            carCalls.add(floor);
+        }
+        requestedFloors.clear();
+        return publishState();
+    }
+
+    private void addStop(int floor) {
+        if (expressFloor != FloorSet.NONE) {
+            suspendedStops.add(floor);
+            return;
+        }
+        if (parkingFloor != FloorSet.NONE) {
+            // any request ends the parking trip. the car stops nowhere on the way and goes straight to the request
+            floorsToStopAt.remove(parkingFloor);
+            parkingFloor = FloorSet.NONE;
+        }
+        if (floorsToStopAt.isEmpty()) {
+            direction = findDirection(floor);
+        }
+        floorsToStopAt.add(floor);
+    }
 
+    @Override
+    public CompletableFuture<Void> requestPickup(int floor) {
+        checkFloorWithinLimits(floor);
+        if (shutdown) {
+            throw new IllegalStateException(name + " is shut down");
+        }
+        CompletableFuture<Void> pickup;
+        boolean stateChanged;
+        long lockedNanos = lockMeasured();
         try {
-            LOG.debug(name + ": requested floor: " + floor + ". current floor: " + currentFloor + ", current direction: " + direction);
-            if (floorsToStopAt.isEmpty()) {
-                direction = findDirection(floor);
+            ElevatorTrace.record(REQUESTED, ticker, traceId, floor);
+            pickup = pickupFutures.get(floor);
+            if (pickup == null) {
+                pickup = new CompletableFuture<Void>();
+                pickupFutures.put(floor, pickup);
             }
-            floorsToStopAt.add(floor);
-            busy = true;
+            pickups.add(floor);
+            addStop(floor);
+            scheduleStepIfBusy();
+            stateChanged = publishState();
+        } finally {
+            unlockMeasured(lockedNanos);
+        }
+        if (stateChanged) {
+            notifyStateListeners();
+        }
+        return pickup;
+    }
+
+    @Override
+    public boolean board(int destinationFloor) {
+        checkFloorWithinLimits(destinationFloor);
+        boolean stateChanged;
+        long lockedNanos = lockMeasured();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException(name + " is shut down");
+            }
+            if (load >= capacity) {
+                return false;
+            }
+            // the car call and the passenger go in together, so a rejected request leaves no one on board
+            inbox.add(destinationFloor);
+            drainInbox();
+            load++;
+            alighting[destinationFloor - minimumFloor]++;
+            metrics.boarded();
+            scheduleStepIfBusy();
+            stateChanged = publishState();
+        } finally {
+            unlockMeasured(lockedNanos);
+        }
+        if (stateChanged) {
+            notifyStateListeners();
+        }
+        return true;
+    }
+
+    @Override
+    public void setCapacity(int passengers) {
+        if (passengers <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0. Given value: " + passengers);
+        }
+        boolean stateChanged;
+        lock.lock();
+        try {
+            capacity = passengers;
+            stateChanged = publishState();
         } finally {
             lock.unlock();
         }
+        if (stateChanged) {
+            notifyStateListeners();
+        }
     }
 
     private Direction findDirection(int floor) {
@@ -174,24 +651,284 @@ class ElevatorImpl implements Elevator {
         return DOWN;
     }
 
+    @Override
+    public void park(int floor) {
+        checkFloorWithinLimits(floor);
+        boolean stateChanged;
+        long lockedNanos = lockMeasured();
+        try {
+            if (shutdown || direction != null || inbox.hasPending() || floor == currentFloor) {
+                return;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(name + ": parking at floor " + floor);
+            }
+            ElevatorTrace.record(PARKING, ticker, traceId, floor);
+            addStop(floor);
+            parkingFloor = floor;
+            scheduleStepIfBusy();
+            stateChanged = publishState();
+        } finally {
+            unlockMeasured(lockedNanos);
+        }
+        if (stateChanged) {
+            notifyStateListeners();
+        }
+    }
+
+    @Override
+    public void setIdleListener(IdleListener listener, long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Idle timeout must not be negative. Given value: " + timeoutMillis);
+        }
+        lock.lock();
+        try {
+            idleListener = listener;
+            idleTimeoutMillis = timeoutMillis;
+            idleSinceMillis = ticker.currentTimeMillis();
+            idleTimedOut = listener == null;
+            scheduleIdleCheck();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public void moveElevator(int toFloor) {
-        throw new RuntimeException("Not implemented yet - what is it supposed to do really?");
+        checkFloorWithinLimits(toFloor);
+        if (shutdown) {
+            throw new IllegalStateException(name + " is shut down");
+        }
+        boolean stateChanged;
+        long lockedNanos = lockMeasured();
+        try {
+            // requests made so far are put aside with the other stops
+            drainInbox();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(name + ": express run to floor " + toFloor + " from " + currentFloor + ". " + getFloorsString());
+            }
+            ElevatorTrace.record(EXPRESS, ticker, traceId, toFloor);
+            if (parkingFloor != FloorSet.NONE) {
+                floorsToStopAt.remove(parkingFloor);
+                parkingFloor = FloorSet.NONE;
+            }
+            if (expressFloor != FloorSet.NONE) {
+                // a new target replaces the old one
+                floorsToStopAt.remove(expressFloor);
+            }
+            for (int floor = floorsToStopAt.first(); floor != FloorSet.NONE; floor = floorsToStopAt.higher(floor)) {
+                suspendedStops.add(floor);
+            }
+            floorsToStopAt.clear();
+            floorsToStopAt.add(toFloor);
+            expressFloor = toFloor;
+            Direction newDirection = findDirection(toFloor);
+            if (direction != null && direction != newDirection) {
+                ElevatorTrace.record(DIRECTION_CHANGED, ticker, traceId, currentFloor);
+            }
+            direction = newDirection;
+            scheduleStepIfBusy();
+            stateChanged = publishState();
+        } finally {
+            unlockMeasured(lockedNanos);
+        }
+        if (stateChanged) {
+            notifyStateListeners();
+        }
     }
 
     @Override
     public boolean isBusy() {
-        return busy;
+        return state.isBusy();
     }
 
     @Override
     public int currentFloor() {
-        return currentFloor;
+        return state.getCurrentFloor();
     }
 
     @Override
     public Direction getDirection() {
-        return direction;
+        return state.getDirection();
+    }
+
+    @Override
+    public ElevatorState snapshot() {
+        return state;
+    }
+
+    @Override
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            // a request which could not take the lock waits in the inbox, the elevator is not idle then either
+            while (direction != null || !idleNotified || inbox.hasPending()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = becameIdle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> arrivalAt(int floor) {
+        checkFloorWithinLimits(floor);
+        lock.lock();
+        try {
+            if (direction == null && currentFloor == floor) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (shutdown) {
+                CompletableFuture<Void> never = new CompletableFuture<Void>();
+                never.completeExceptionally(new IllegalStateException(name + " is shut down"));
+                return never;
+            }
+            CompletableFuture<Void> arrival = arrivals.get(floor);
+            if (arrival == null) {
+                arrival = new CompletableFuture<Void>();
+                arrivals.put(floor, arrival);
+            }
+            return arrival;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long estimateArrivalMillis(int floor) {
+        return etaCalculator.estimate(state, floor);
+    }
+
+    /**
+     * For tests: lets them hold the lock of the elevator.
+     */
+    Lock getLock() {
+        return lock;
+    }
+
+    @Override
+    public ElevatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Same as lock.lock(), measuring the time spent waiting for the lock.
+     *
+     * @return time the lock was acquired at, to pass to {@link #unlockMeasured(long)}.
+     */
+    private long lockMeasured() {
+        long start = System.nanoTime();
+        lock.lock();
+        long locked = System.nanoTime();
+        metrics.lockAcquired(locked - start);
+        return locked;
+    }
+
+    private void unlockMeasured(long lockedNanos) {
+        metrics.lockReleased(System.nanoTime() - lockedNanos);
+        lock.unlock();
+    }
+
+    long getStepMillis() {
+        return stepMillis;
+    }
+
+    int getTraceId() {
+        return traceId;
+    }
+
+    @Override
+    public int getMinimumFloor() {
+        return minimumFloor;
+    }
+
+    @Override
+    public int getTopFloor() {
+        return topFloor;
+    }
+
+    /**
+     * @return passengers on board going to the floor.
+     */
+    int getAlightingCount(int floor) {
+        checkFloorWithinLimits(floor);
+        lock.lock();
+        try {
+            return alighting[floor - minimumFloor];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return stops put aside for the current express run, in ascending order. Empty if there is no express run.
+     */
+    int[] getSuspendedStops() {
+        lock.lock();
+        try {
+            return toArray(suspendedStops);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts the elevator into a state saved by {@link BuildingSnapshot}. Must be called before the elevator starts.
+     * Saved stops are restored as car calls, so the elevator makes them even when it is full.
+     *
+     * @param alightingCounts passengers on board going to each floor, indexed by floor - minimum floor.
+     * @param suspended       stops put aside for the express run of the saved state.
+     */
+    void restoreState(ElevatorState saved, int[] alightingCounts, int[] suspended) {
+        checkFloorWithinLimits(saved.getCurrentFloor());
+        for (int i = 0; i < saved.getPendingStopsCount(); i++) {
+            checkFloorWithinLimits(saved.getPendingStop(i));
+        }
+        for (int floor : suspended) {
+            checkFloorWithinLimits(floor);
+        }
+        if (saved.isExpress() && saved.getPendingStopsCount() != 1) {
+            throw new IllegalArgumentException("Express run must have a single stop: " + saved);
+        }
+        if (alightingCounts.length != alighting.length) {
+            throw new IllegalArgumentException("Expected passengers for " + alighting.length + " floors, got "
+                    + alightingCounts.length);
+        }
+        lock.lock();
+        try {
+            currentFloor = saved.getCurrentFloor();
+            direction = saved.getDirection();
+            capacity = saved.getCapacity();
+            floorsToStopAt.clear();
+            carCalls.clear();
+            parkingFloor = FloorSet.NONE;
+            expressFloor = FloorSet.NONE;
+            if (saved.isExpress()) {
+                expressFloor = saved.getPendingStop(0);
+            }
+            suspendedStops.clear();
+            for (int floor : suspended) {
+                suspendedStops.add(floor);
+                carCalls.add(floor);
+            }
+            for (int i = 0; i < saved.getPendingStopsCount(); i++) {
+                floorsToStopAt.add(saved.getPendingStop(i));
+                carCalls.add(saved.getPendingStop(i));
+            }
+            load = 0;
+            for (int i = 0; i < alighting.length; i++) {
+                alighting[i] = alightingCounts[i];
+                load += alightingCounts[i];
+            }
+            publishState();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -204,41 +941,195 @@ class ElevatorImpl implements Elevator {
         this.listener = listener;
     }
 
-    // TODO further improvements:
-    // 1. make sure exceptions in listener do not affect our code
-    // 2. maybe send notifications in a separate thread because what if listener is very slow?..
-    private void notifyListener() {
+    @Override
+    public void addStateListener(ElevatorStateListener listener) {
+        stateListeners.add(listener);
+    }
+
+    @Override
+    public void removeStateListener(ElevatorStateListener listener) {
+        stateListeners.remove(listener);
+    }
+
+    /**
+     * Must be called WITHOUT the lock held: listeners are allowed to call this or other elevators.
+     */
+    private void notifyStateListeners() {
+        for (ElevatorStateListener stateListener : stateListeners) {
+            stateListener.stateChanged(this);
+        }
+    }
+
+    /**
+     * Must be called WITHOUT the lock held. The listener is called right here, on the thread which made the step,
+     * after the step has released the lock, the same as arrival futures and state listeners. So the listener may
+     * call this or other elevators, but by the time it runs other threads may have changed the elevator already:
+     * the visited floor is a fact about the past step, not the current state.
+     * <p>
+     * A slow listener holds up the thread which moves the elevator (or a thread of a shared scheduler), so it
+     * should be wrapped into {@link com.locusenergy.homework.AsyncFloorListener}.
+     */
+    private void notifyListener(int floor) {
         // saving instance variable here for thread safety
         // another option would be having a lock object and locking it
         // at the beginning of this and setFloorListener() methods.
         // (and unlocking at the end)
         FloorListener localVar = listener;
         if (localVar != null) {
-            localVar.floorVisited(currentFloor);
+            try {
+                localVar.floorVisited(floor);
+            } catch (RuntimeException e) {
+                // a broken listener must not stop the elevator
+                LOG.error(name + ": floor listener failed at floor " + floor, e);
+            }
         }
     }
 
-    void startThread() {
-        thread.start();
+    /**
+     * Gives this elevator a dedicated thread, which moves it one step every step time of the clock.
+     * The thread is started by {@link #start()}.
+     */
+    void useThread(ThreadFactory threadFactory, final Clock clock) {
+        lock.lock();
+        try {
+            ticker = clock;
+        } finally {
+            lock.unlock();
+        }
+        Thread newThread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!shutdown) {
+                        step();
+                        try {
+                            clock.sleep(stepMillis);
+                        } catch (InterruptedException e) {
+                            if (!shutdown) {
+                                LOG.warn(name + ": elevator thread interrupted", e);
+                            }
+                        }
+                    }
+                } finally {
+                    terminated.countDown();
+                }
+            }
+        });
+        newThread.setName("elevator " + name);
+        newThread.setDaemon(true);
+        lock.lock();
+        try {
+            thread = newThread;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException(name + " is shut down");
+            }
+            if (thread != null && thread.getState() == Thread.State.NEW) {
+                metrics.started(ticker.currentTimeMillis());
+                thread.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        List<CompletableFuture<Void>> abandoned = new ArrayList<CompletableFuture<Void>>();
+        lock.lock();
+        try {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            abandoned.addAll(arrivals.values());
+            abandoned.addAll(pickupFutures.values());
+            arrivals.clear();
+            pickupFutures.clear();
+            floorsToStopAt.clear();
+            carCalls.clear();
+            pickups.clear();
+            suspendedStops.clear();
+            parkingFloor = FloorSet.NONE;
+            expressFloor = FloorSet.NONE;
+            direction = null;
+            // state listeners are not told: the elevator takes no more requests
+            publishState();
+            if (thread == null || thread.getState() == Thread.State.NEW) {
+                // event-driven mode: a step which is already scheduled will do nothing
+                terminated.countDown();
+            } else {
+                thread.interrupt();
+            }
+        } finally {
+            lock.unlock();
+        }
+        // outside of the lock, like every other future of the elevator
+        for (CompletableFuture<Void> future : abandoned) {
+            future.completeExceptionally(new IllegalStateException(name + " is shut down"));
+        }
+        ElevatorTrace.unregister(traceId);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Switches this elevator to event-driven mode: instead of a thread of its own the elevator asks the scheduler
+     * to run its next step after the step time, and only while it is busy.
+     */
+    void attachTo(Scheduler scheduler) {
+        lock.lock();
+        try {
+            this.scheduler = scheduler;
+            ticker = scheduler;
+            metrics.started(ticker.currentTimeMillis());
+            scheduleStepIfBusy();
+            scheduleIdleCheck();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void scheduleStepIfBusy() {
+        if (direction != null) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Makes sure an event-driven elevator has its next step scheduled. Can be called without the lock.
+     */
+    private void wakeUp() {
+        Scheduler localScheduler = scheduler;
+        if (localScheduler != null && stepScheduled.compareAndSet(false, true)) {
+            localScheduler.schedule(stepMillis, stepEvent);
+        }
     }
 
     @Override
     public String toString() {
+        ElevatorState localState = state;
         return "{" +
                 name +
-                ", busy=" + busy +
-                ", currentFloor=" + currentFloor +
-                ", direction=" + direction.toString()
+                ", busy=" + localState.isBusy() +
+                ", currentFloor=" + localState.getCurrentFloor() +
+                ", direction=" + localState.getDirection()
                 + "}";
     }
 
     private String getFloorsString() {
-        String result = "floors to visit { ";
-        for (Integer integer : floorsToStopAt) {
-            result += integer + " ";
-        }
-        result += "}";
-        return result;
+        return "floors to visit " + floorsToStopAt;
     }
 
     /**
@@ -0,0 +1,264 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.simulation.Ticker;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocation-free trace of elevator events, meant to stay on in production.
+ * <p>
+ * When neither the ring buffer nor a journal is on, a trace point costs one volatile read: both live in one
+ * immutable holder. When enabled, every event is written as two longs (timestamp, packed type/elevator/floor) into
+ * a ring buffer which is allocated once in {@link #enable(int)}. Only the last "capacity" events are kept.
+ * {@link #dump(Appendable)} decodes them into text on demand.
+ * <p>
+ * Elevators get ids of 24 bits, which is what the ring buffer has room for. Ids are reused after 16M registrations,
+ * skipping the ids of elevators which have not been shut down yet. The name of an elevator is forgotten when it is
+ * shut down, so a dump shows its events under the id then.
+ * <p>
+ * For a full record of everything that happened, attach an {@link EventJournal}.
+ * <p>
+ * Sample usage:
+ * <pre>
+ *    ElevatorTrace.enable(65536);
+ *    ...
+ *    ElevatorTrace.dump(System.out);
+ * </pre>
+ */
+public final class ElevatorTrace {
+
+    public enum EventType {
+        REQUESTED,
+        MOVED,
+        STOPPED,
+        DIRECTION_CHANGED,
+        RELEASED,
+        HALL_CALL,
+        ASSIGNED,
+        BYPASSED,
+        PARKING,
+        EXPRESS
+    }
+
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final int MAX_ELEVATOR_ID = 0xFFFFFF;
+    // guarded by ElevatorTrace.class
+    private static int lastElevatorId;
+    private static final Map<Integer, String> ELEVATOR_NAMES = new ConcurrentHashMap<Integer, String>();
+
+    private final static Logger LOG = Logger.getLogger(ElevatorTrace.class);
+
+    // null when tracing is disabled and no journal is attached. replaced as a whole, guarded by ElevatorTrace.class
+    private static volatile Sinks sinks;
+
+    private ElevatorTrace() {
+    }
+
+    /**
+     * Starts tracing into a new buffer, dropping whatever was recorded before.
+     *
+     * @param capacity number of events to keep. Rounded up to a power of 2.
+     */
+    public static synchronized void enable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0. Given value: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        setSinks(new Ring(size), journal());
+    }
+
+    public static synchronized void disable() {
+        setSinks(null, journal());
+    }
+
+    public static boolean isEnabled() {
+        return ring() != null;
+    }
+
+    /**
+     * Sends all events to the journal too, from now on. Works whether or not the ring buffer is enabled.
+     */
+    public static synchronized void attachJournal(EventJournal newJournal) throws IOException {
+        for (Map.Entry<Integer, String> name : ELEVATOR_NAMES.entrySet()) {
+            newJournal.nameElevator(name.getKey(), name.getValue());
+        }
+        setSinks(ring(), newJournal);
+    }
+
+    public static synchronized void detachJournal() {
+        setSinks(ring(), null);
+    }
+
+    private static synchronized void setSinks(Ring ring, EventJournal journal) {
+        sinks = ring == null && journal == null ? null : new Sinks(ring, journal);
+    }
+
+    private static Ring ring() {
+        Sinks localSinks = sinks;
+        return localSinks == null ? null : localSinks.ring;
+    }
+
+    private static EventJournal journal() {
+        Sinks localSinks = sinks;
+        return localSinks == null ? null : localSinks.journal;
+    }
+
+    /**
+     * Records a call made at a floor of a building.
+     *
+     * @param ticker time base of the building, which timestamps the event
+     */
+    public static void recordHallCall(HallCall call, Ticker ticker) {
+        if (sinks != null) {
+            record(EventType.HALL_CALL, ticker, 0, call.getFloor(), call.getDirection(), destinationOf(call));
+        }
+    }
+
+    /**
+     * Records that a dispatcher gave the call to the elevator. The elevator is only identified if it comes from
+     * {@link ElevatorFactory}.
+     *
+     * @param ticker time base of the building, which timestamps the event
+     */
+    public static void recordAssignment(HallCall call, Elevator elevator, Ticker ticker) {
+        if (sinks != null) {
+            int elevatorId = elevator instanceof ElevatorImpl ? ((ElevatorImpl) elevator).getTraceId() : 0;
+            record(EventType.ASSIGNED, ticker, elevatorId, call.getFloor(), call.getDirection(), destinationOf(call));
+        }
+    }
+
+    private static int destinationOf(HallCall call) {
+        return call.hasDestination() ? call.getDestinationFloor() : 0;
+    }
+
+    /**
+     * @return id to use in {@link #record(EventType, Ticker, int, int)}. Names are only looked up when dumping.
+     */
+    static synchronized int register(String elevatorName) {
+        int id = lastElevatorId;
+        for (int tried = 0; tried < MAX_ELEVATOR_ID; tried++) {
+            id = id == MAX_ELEVATOR_ID ? 1 : id + 1;
+            if (!ELEVATOR_NAMES.containsKey(id)) {
+                lastElevatorId = id;
+                ELEVATOR_NAMES.put(id, elevatorName);
+                nameInJournal(id, elevatorName);
+                return id;
+            }
+        }
+        throw new IllegalStateException("All " + MAX_ELEVATOR_ID + " trace ids are taken by running elevators");
+    }
+
+    private static void nameInJournal(int id, String elevatorName) {
+        EventJournal localJournal = journal();
+        if (localJournal != null) {
+            try {
+                localJournal.nameElevator(id, elevatorName);
+            } catch (IOException e) {
+                LOG.error("cannot write the name of elevator " + elevatorName + " to the journal", e);
+            }
+        }
+    }
+
+    /**
+     * Frees the id of a shut down elevator. The journal keeps the name.
+     */
+    static void unregister(int elevatorId) {
+        ELEVATOR_NAMES.remove(elevatorId);
+    }
+
+    /**
+     * @param ticker time base of the elevator, which timestamps the event. Only read if tracing is on.
+     */
+    static void record(EventType type, Ticker ticker, int elevatorId, int floor) {
+        record(type, ticker, elevatorId, floor, null, 0);
+    }
+
+    private static void record(EventType type, Ticker ticker, int elevatorId, int floor, Direction direction,
+                               int destinationFloor) {
+        Sinks localSinks = sinks;
+        if (localSinks == null) {
+            return;
+        }
+        Ring localRing = localSinks.ring;
+        EventJournal localJournal = localSinks.journal;
+        long timeMillis = ticker.currentTimeMillis();
+        if (localRing != null) {
+            localRing.write(timeMillis, type, elevatorId, floor);
+        }
+        if (localJournal != null) {
+            try {
+                localJournal.append(timeMillis, type, elevatorId, floor, direction, destinationFloor);
+            } catch (IOException e) {
+                LOG.error("cannot write to the journal, detaching it", e);
+                detachJournal();
+            }
+        }
+    }
+
+    /**
+     * Writes the recorded events, oldest first, one per line. Events recorded while dumping may show up
+     * partially overwritten.
+     */
+    public static void dump(Appendable out) throws IOException {
+        Ring localRing = ring();
+        if (localRing != null) {
+            localRing.dump(out);
+        }
+    }
+
+    private static class Sinks {
+        private final Ring ring;
+        private final EventJournal journal;
+
+        private Sinks(Ring ring, EventJournal journal) {
+            this.ring = ring;
+            this.journal = journal;
+        }
+    }
+
+    private static class Ring {
+        private final long[] data;
+        private final int mask;
+        private final AtomicLong cursor = new AtomicLong();
+
+        /**
+         * @param size power of 2
+         */
+        private Ring(int size) {
+            this.data = new long[size * 2];
+            this.mask = size - 1;
+        }
+
+        private void write(long timeMillis, EventType type, int elevatorId, int floor) {
+            int slot = (int) (cursor.getAndIncrement() & mask) << 1;
+            data[slot] = timeMillis;
+            data[slot + 1] = (long) type.ordinal() << 56 | (long) elevatorId << 32 | (floor & 0xFFFFFFFFL);
+        }
+
+        private void dump(Appendable out) throws IOException {
+            long end = cursor.get();
+            long start = Math.max(0, end - (mask + 1));
+            for (long i = start; i < end; i++) {
+                int slot = (int) (i & mask) << 1;
+                long time = data[slot];
+                long packed = data[slot + 1];
+                int elevatorId = (int) (packed >>> 32) & MAX_ELEVATOR_ID;
+                String name = ELEVATOR_NAMES.get(elevatorId);
+                out.append(String.valueOf(time)).append(' ')
+                        .append(name != null ? name : elevatorId == 0 ? "null" : "#" + elevatorId).append(' ')
+                        .append(EVENT_TYPES[(int) (packed >>> 56)].name()).append(' ')
+                        .append(String.valueOf((int) packed)).append('\n');
+            }
+        }
+    }
+}
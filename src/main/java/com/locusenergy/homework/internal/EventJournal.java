@@ -0,0 +1,238 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Direction;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only journal of elevator events: hall calls, assignments, car calls, floor visits and stops.
+ * <p>
+ * Every event is a fixed-size record of {@link #RECORD_SIZE} bytes written straight into a memory-mapped segment
+ * file, so appending allocates nothing and the OS writes the data out in the background. Appending takes no lock:
+ * every writer claims its record with an atomic add and fills it in, so elevators never wait for each other here,
+ * and records of concurrent writers may be slightly out of time order. A background thread of the journal maps the
+ * next segment ahead of time and writes out full segments, so a writer which finds its segment full only swaps in
+ * the next one. Only when segments fill up faster than the background thread maps them does the writer map the
+ * next segment itself. Segment files are named journal-00000000.dat, journal-00000001.dat, ...; elevator names
+ * are kept separately in elevators.txt. Use {@link EventJournalReader} to read the journal back.
+ * <p>
+ * Record layout (big-endian): time in millis (8 bytes), event type ordinal + 1 (1 byte, 0 marks the end of data),
+ * direction (1 byte: 0 none, 1 UP, 2 DOWN), 2 unused bytes, elevator trace id (4 bytes, 0 for hall calls),
+ * floor (4 bytes), destination floor (4 bytes, 0 if none).
+ * <p>
+ * The journal receives events from {@link ElevatorTrace}:
+ * <pre>
+ *    EventJournal journal = EventJournal.open(new File("journal"), 64 * 1024 * 1024);
+ *    ElevatorTrace.attachJournal(journal);
+ *    ...
+ *    ElevatorTrace.detachJournal();
+ *    journal.close();
+ * </pre>
+ */
+public class EventJournal implements Closeable {
+
+    public static final int RECORD_SIZE = 24;
+
+    static final String NAMES_FILE = "elevators.txt";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final int segmentSize;
+    private final Writer names;
+    private final Object rollLock = new Object();
+    // maps segments ahead of time and writes out full ones
+    private final ExecutorService background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "event-journal");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private volatile Segment segment;
+    // the segment after the current one. guarded by rollLock
+    private Future<Segment> nextSegment;
+    // guarded by rollLock for writers, volatile for the fast check in append()
+    private volatile boolean closed;
+
+    private EventJournal(File directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.names = new OutputStreamWriter(new FileOutputStream(new File(directory, NAMES_FILE), true), UTF_8);
+        this.segment = map(0);
+        synchronized (rollLock) {
+            prepare(1);
+        }
+    }
+
+    /**
+     * Starts a new journal in the directory, which must not contain another journal.
+     *
+     * @param segmentSize size of each segment file in bytes, rounded down to whole records.
+     */
+    public static EventJournal open(File directory, int segmentSize) throws IOException {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment must hold at least one record. Given size: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        if (segmentFile(directory, 0).exists()) {
+            throw new IOException("Directory " + directory + " already contains a journal");
+        }
+        return new EventJournal(directory, segmentSize - segmentSize % RECORD_SIZE);
+    }
+
+    static File segmentFile(File directory, int number) {
+        return new File(directory, String.format("journal-%08d.dat", number));
+    }
+
+    void append(long timeMillis, ElevatorTrace.EventType type, int elevatorId, int floor,
+                Direction direction, int destinationFloor) throws IOException {
+        while (!closed) {
+            Segment localSegment = segment;
+            int position = localSegment.claimed.getAndAdd(RECORD_SIZE);
+            if (position + RECORD_SIZE <= segmentSize) {
+                MappedByteBuffer buffer = localSegment.buffer;
+                buffer.putLong(position, timeMillis);
+                buffer.put(position + 9, (byte) (direction == null ? 0 : direction.ordinal() + 1));
+                buffer.putShort(position + 10, (short) 0);
+                buffer.putInt(position + 12, elevatorId);
+                buffer.putInt(position + 16, floor);
+                buffer.putInt(position + 20, destinationFloor);
+                // the type goes last: readers skip records whose type is still 0
+                buffer.put(position + 8, (byte) (type.ordinal() + 1));
+                return;
+            }
+            roll(localSegment);
+        }
+    }
+
+    synchronized void nameElevator(int elevatorId, String name) throws IOException {
+        if (closed) {
+            return;
+        }
+        names.write(elevatorId + "\t" + name + "\n");
+        names.flush();
+    }
+
+    /**
+     * Writes out everything appended so far.
+     */
+    public void force() {
+        if (!closed) {
+            segment.buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        Future<Segment> unused;
+        synchronized (rollLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unused = nextSegment;
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.buffer.force();
+        names.close();
+        if (unused != null && unused.isDone()) {
+            // mapped ahead of time but never written. may fail where mapped files cannot be deleted, readers skip it then
+            segmentFile(directory, segment.number + 1).delete();
+        }
+    }
+
+    /**
+     * Replaces the full segment with the next one, unless another writer has done it already. The full segment is
+     * written out by the background thread.
+     */
+    private void roll(final Segment full) throws IOException {
+        synchronized (rollLock) {
+            if (segment != full || closed) {
+                return;
+            }
+            segment = takeNext(full.number + 1);
+            prepare(full.number + 2);
+            background.execute(new Runnable() {
+                @Override
+                public void run() {
+                    full.buffer.force();
+                }
+            });
+        }
+    }
+
+    // guarded by rollLock
+    private void prepare(final int number) {
+        nextSegment = background.submit(new Callable<Segment>() {
+            @Override
+            public Segment call() throws IOException {
+                return map(number);
+            }
+        });
+    }
+
+    // guarded by rollLock
+    private Segment takeNext(int number) throws IOException {
+        if (!nextSegment.isDone()) {
+            // the background thread is behind. mapping the same file again is safe, both mappings share the pages
+            return map(number);
+        }
+        try {
+            return nextSegment.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot map segment " + number, e.getCause());
+        } catch (InterruptedException e) {
+            // cannot happen, the future is done
+            Thread.currentThread().interrupt();
+            return map(number);
+        }
+    }
+
+    private Segment map(int number) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile(directory, number), "rw");
+        try {
+            // the mapping stays valid after the file is closed
+            return new Segment(number, file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } finally {
+            file.close();
+        }
+    }
+
+    private static class Segment {
+        private final int number;
+        // written with absolute puts only, each writer into its own record
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger claimed = new AtomicInteger();
+
+        private Segment(int number, MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+        }
+    }
+}
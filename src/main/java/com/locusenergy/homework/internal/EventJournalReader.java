@@ -0,0 +1,164 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Direction;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams the records of an {@link EventJournal}, oldest first, one segment mapped at a time. The reader is a cursor:
+ * {@link #next()} moves to the next record and the getters return its fields, so reading allocates nothing per
+ * record.
+ * <p>
+ * A record whose type is 0 was claimed by a writer which had not finished it (or never will): it is skipped, and so
+ * is the unwritten space at the end of the last segment.
+ * <p>
+ * Sample usage:
+ * <pre>
+ *    EventJournalReader reader = new EventJournalReader(new File("journal"));
+ *    while (reader.next()) {
+ *        if (reader.getType() == ElevatorTrace.EventType.STOPPED) ...
+ *    }
+ *    reader.close();
+ * </pre>
+ */
+public class EventJournalReader implements Closeable {
+
+    private static final ElevatorTrace.EventType[] EVENT_TYPES = ElevatorTrace.EventType.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final File directory;
+    private final Map<Integer, String> names = new HashMap<Integer, String>();
+    private int segmentNumber = -1;
+    private MappedByteBuffer segment;
+    private boolean endOfData;
+
+    private long timeMillis;
+    private ElevatorTrace.EventType type;
+    private Direction direction;
+    private int elevatorId;
+    private int floor;
+    private int destinationFloor;
+
+    public EventJournalReader(File directory) throws IOException {
+        this.directory = directory;
+        File namesFile = new File(directory, EventJournal.NAMES_FILE);
+        if (namesFile.exists()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(namesFile), Charset.forName("UTF-8")));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0) {
+                        names.put(Integer.parseInt(line.substring(0, tab)), line.substring(tab + 1));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false if there are no more records.
+     */
+    public boolean next() throws IOException {
+        while (!endOfData) {
+            if (segment == null || segment.remaining() < EventJournal.RECORD_SIZE) {
+                if (!openNextSegment()) {
+                    endOfData = true;
+                    break;
+                }
+            }
+            long time = segment.getLong();
+            int typeCode = segment.get();
+            if (typeCode == 0) {
+                segment.position(segment.position() + EventJournal.RECORD_SIZE - 9);
+                continue;
+            }
+            int directionCode = segment.get();
+            segment.getShort();
+            timeMillis = time;
+            type = EVENT_TYPES[typeCode - 1];
+            direction = directionCode == 0 ? null : DIRECTIONS[directionCode - 1];
+            elevatorId = segment.getInt();
+            floor = segment.getInt();
+            destinationFloor = segment.getInt();
+            return true;
+        }
+        return false;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public ElevatorTrace.EventType getType() {
+        return type;
+    }
+
+    /**
+     * @return direction of a hall call or an assignment, null for other events.
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return trace id of the elevator, 0 for hall calls.
+     */
+    public int getElevatorId() {
+        return elevatorId;
+    }
+
+    /**
+     * @return name of the elevator of the current record, or null if unknown.
+     */
+    public String getElevatorName() {
+        return names.get(elevatorId);
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    /**
+     * @return destination floor of a destination call, 0 if none.
+     */
+    public int getDestinationFloor() {
+        return destinationFloor;
+    }
+
+    @Override
+    public void close() {
+        segment = null;
+        endOfData = true;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        File file = EventJournal.segmentFile(directory, segmentNumber + 1);
+        if (!file.exists()) {
+            return false;
+        }
+        segmentNumber++;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            segment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+        } finally {
+            randomAccessFile.close();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.locusenergy.homework.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * How an elevator created by {@link ElevatorFactory} gets the CPU to move.
+ */
+public enum ExecutionMode {
+    /**
+     * A platform (OS) thread per elevator. Simple, but thousands of elevators mean thousands of OS threads.
+     */
+    PLATFORM_THREAD,
+    /**
+     * A virtual thread per elevator. Needs Java 21 or newer at runtime.
+     */
+    VIRTUAL_THREAD,
+    /**
+     * No thread of its own: the elevator's steps run on an executor shared by all elevators in this mode,
+     * and only while the elevator is busy.
+     */
+    SHARED_EXECUTOR;
+
+    /**
+     * @return factory for the threads of a thread-per-elevator mode
+     * @throws UnsupportedOperationException for virtual threads on Java older than 21.
+     */
+    ThreadFactory threadFactory() {
+        switch (this) {
+            case PLATFORM_THREAD:
+                return new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable);
+                    }
+                };
+            case VIRTUAL_THREAD:
+                return virtualThreadFactory();
+            default:
+                throw new IllegalStateException(this + " does not use a thread per elevator");
+        }
+    }
+
+    /**
+     * The code is compiled for Java 8, so Thread.ofVirtual().factory() has to be called through reflection.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or newer. Running on " + System.getProperty("java.version"));
+        } catch (InvocationTargetException e) {
+            // Java 19 and 20 have them as a preview feature, which refuses to run unless enabled
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                throw new UnsupportedOperationException("Virtual threads need Java 21 or newer. Running on " + System.getProperty("java.version"), e.getCause());
+            }
+            throw new IllegalStateException("Cannot create a virtual thread factory", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a virtual thread factory", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.locusenergy.homework.internal;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free multi-producer, single-consumer inbox of requested floors. Any number of threads can {@link #add(int)}
+ * floors without blocking; the one thread which owns the stops of the elevator moves them into its
+ * {@link FloorSet} with {@link #drainTo(FloorSet)}.
+ * <p>
+ * Requesting a floor twice is the same as requesting it once, so the inbox is a bitset: nothing is allocated after
+ * construction and it can never overflow.
+ */
+class FloorInbox {
+
+    private final int minimumFloor;
+    private final AtomicLongArray words;
+    // set after every add, so that an empty inbox is checked with a single read
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    FloorInbox(int minimumFloor, int topFloor) {
+        this.minimumFloor = minimumFloor;
+        this.words = new AtomicLongArray(((topFloor - minimumFloor) >> 6) + 1);
+    }
+
+    /**
+     * The floor must be within the range of the inbox.
+     */
+    void add(int floor) {
+        int bit = floor - minimumFloor;
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+        } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        pending.set(true);
+    }
+
+    boolean hasPending() {
+        return pending.get();
+    }
+
+    /**
+     * Must be called by one thread at a time.
+     *
+     * @return number of floors moved into the set. Floors already in the set are counted too.
+     */
+    int drainTo(FloorSet floors) {
+        if (!pending.getAndSet(false)) {
+            return 0;
+        }
+        int count = 0;
+        for (int word = 0; word < words.length(); word++) {
+            long bits = words.getAndSet(word, 0);
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                floors.add(minimumFloor + (word << 6) + bit);
+                bits &= bits - 1;
+                count++;
+            }
+        }
+        return count;
+    }
+}
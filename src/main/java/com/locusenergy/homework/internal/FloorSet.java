@@ -0,0 +1,184 @@
+package com.locusenergy.homework.internal;
+
+/**
+ * A set of floors within a fixed range, stored as a bitset. Nothing is allocated after construction, and
+ * {@link #higher(int)}/{@link #lower(int)} scan whole 64-bit words at a time.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class FloorSet {
+
+    /**
+     * Returned by search methods when there is no such floor.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final int minimumFloor;
+    private final int topFloor;
+    private final long[] words;
+    private int size;
+    private int modCount;
+
+    /**
+     * @param minimumFloor lowest floor which can be stored
+     * @param topFloor     highest floor which can be stored
+     */
+    public FloorSet(int minimumFloor, int topFloor) {
+        if (topFloor < minimumFloor) {
+            throw new IllegalArgumentException("Top floor " + topFloor + " is lower than the minimum floor " + minimumFloor);
+        }
+        this.minimumFloor = minimumFloor;
+        this.topFloor = topFloor;
+        this.words = new long[((topFloor - minimumFloor) >> 6) + 1];
+    }
+
+    /**
+     * @return true if the floor was not in the set before
+     */
+    public boolean add(int floor) {
+        int bit = bitOf(floor);
+        long mask = 1L << bit;
+        int word = bit >>> 6;
+        if ((words[word] & mask) != 0) {
+            return false;
+        }
+        words[word] |= mask;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * @return true if the floor was in the set
+     */
+    public boolean remove(int floor) {
+        if (floor < minimumFloor || floor > topFloor) {
+            return false;
+        }
+        int bit = floor - minimumFloor;
+        long mask = 1L << bit;
+        int word = bit >>> 6;
+        if ((words[word] & mask) == 0) {
+            return false;
+        }
+        words[word] &= ~mask;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    public boolean contains(int floor) {
+        if (floor < minimumFloor || floor > topFloor) {
+            return false;
+        }
+        int bit = floor - minimumFloor;
+        return (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return the lowest floor strictly higher than the given one, or {@link #NONE}
+     */
+    public int higher(int floor) {
+        if (floor >= topFloor) {
+            return NONE;
+        }
+        int bit = floor < minimumFloor ? 0 : floor - minimumFloor + 1;
+        int word = bit >>> 6;
+        long bits = words[word] & (-1L << bit);
+        while (true) {
+            if (bits != 0) {
+                return minimumFloor + (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length) {
+                return NONE;
+            }
+            bits = words[word];
+        }
+    }
+
+    /**
+     * @return the highest floor strictly lower than the given one, or {@link #NONE}
+     */
+    public int lower(int floor) {
+        if (floor <= minimumFloor) {
+            return NONE;
+        }
+        int bit = floor > topFloor ? topFloor - minimumFloor : floor - minimumFloor - 1;
+        int word = bit >>> 6;
+        long bits = words[word] & (-1L >>> (63 - (bit & 63)));
+        while (true) {
+            if (bits != 0) {
+                return minimumFloor + (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+            if (--word < 0) {
+                return NONE;
+            }
+            bits = words[word];
+        }
+    }
+
+    /**
+     * @return the lowest floor in the set, or {@link #NONE}
+     */
+    public int first() {
+        return contains(minimumFloor) ? minimumFloor : higher(minimumFloor);
+    }
+
+    /**
+     * @return the highest floor in the set, or {@link #NONE}
+     */
+    public int last() {
+        return contains(topFloor) ? topFloor : lower(topFloor);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return number which changes every time the set does, so that callers can keep what they computed from it
+     *         until then.
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    public int getMinimumFloor() {
+        return minimumFloor;
+    }
+
+    public int getTopFloor() {
+        return topFloor;
+    }
+
+    private int bitOf(int floor) {
+        if (floor < minimumFloor || floor > topFloor) {
+            throw new IllegalArgumentException("Floor " + floor + " is out of range " + minimumFloor + ".." + topFloor);
+        }
+        return floor - minimumFloor;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{ ");
+        for (int floor = first(); floor != NONE; floor = higher(floor)) {
+            result.append(floor).append(' ');
+        }
+        return result.append('}').toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.locusenergy.homework.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements of a building: the numbers operators ask about.
+ * <ul>
+ * <li>wait time - from the call until the elevator stops at the floor of the call, in millis</li>
+ * <li>travel time - from the pickup until the elevator stops at the destination of a destination call, in millis</li>
+ * <li>assignment time - from the call until the dispatcher gives it to an elevator, in millis</li>
+ * <li>dispatch latency - CPU time of one {@link com.locusenergy.homework.DispatchStrategy#selectElevator}, in nanos</li>
+ * </ul>
+ * Times in millis are measured with the time base of the building, so they are virtual in simulations.
+ */
+public class BuildingMetrics {
+
+    private final Histogram waitMillis = new Histogram();
+    private final Histogram travelMillis = new Histogram();
+    private final Histogram assignmentMillis = new Histogram();
+    private final Histogram dispatchNanos = new Histogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder bypassedPickups = new LongAdder();
+
+    public void callMade() {
+        calls.increment();
+    }
+
+    public void pickupBypassed() {
+        bypassedPickups.increment();
+    }
+
+    public void callAssigned(long millis) {
+        assignmentMillis.record(millis);
+    }
+
+    public void passengerPickedUp(long waitedMillis) {
+        waitMillis.record(waitedMillis);
+    }
+
+    public void passengerArrived(long travelledMillis) {
+        travelMillis.record(travelledMillis);
+    }
+
+    public void dispatched(long nanos) {
+        dispatchNanos.record(nanos);
+    }
+
+    public long getCallsCount() {
+        return calls.sum();
+    }
+
+    public long getBypassedPickupsCount() {
+        return bypassedPickups.sum();
+    }
+
+    public HistogramSnapshot getWaitMillis() {
+        return waitMillis.snapshot();
+    }
+
+    public HistogramSnapshot getTravelMillis() {
+        return travelMillis.snapshot();
+    }
+
+    public HistogramSnapshot getAssignmentMillis() {
+        return assignmentMillis.snapshot();
+    }
+
+    public HistogramSnapshot getDispatchNanos() {
+        return dispatchNanos.snapshot();
+    }
+}
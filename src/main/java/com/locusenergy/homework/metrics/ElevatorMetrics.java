@@ -0,0 +1,96 @@
+package com.locusenergy.homework.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements of one elevator: how long callers wait for its lock and hold it, how many stops it makes,
+ * how many passengers it carries, and how much of the time it is busy.
+ */
+public class ElevatorMetrics {
+
+    private final Histogram lockWaitNanos = new Histogram();
+    private final Histogram lockHoldNanos = new Histogram();
+    private final LongAdder stops = new LongAdder();
+    private final LongAdder boarded = new LongAdder();
+    private final LongAdder alighted = new LongAdder();
+
+    // guarded by this. -1 while not started / not busy
+    private long startMillis = -1;
+    private long busySinceMillis = -1;
+    private long busyMillis;
+
+    public void lockAcquired(long waitNanos) {
+        lockWaitNanos.record(waitNanos);
+    }
+
+    public void lockReleased(long holdNanos) {
+        lockHoldNanos.record(holdNanos);
+    }
+
+    public void stopped() {
+        stops.increment();
+    }
+
+    public void boarded() {
+        boarded.increment();
+    }
+
+    public void alighted(int passengers) {
+        alighted.add(passengers);
+    }
+
+    /**
+     * Starts measuring utilization.
+     */
+    public synchronized void started(long nowMillis) {
+        if (startMillis < 0) {
+            startMillis = nowMillis;
+        }
+    }
+
+    public synchronized void busyChanged(boolean busy, long nowMillis) {
+        if (busy && busySinceMillis < 0) {
+            busySinceMillis = nowMillis;
+        } else if (!busy && busySinceMillis >= 0) {
+            busyMillis += nowMillis - busySinceMillis;
+            busySinceMillis = -1;
+        }
+    }
+
+    /**
+     * @return share of the time since start the elevator was busy, 0..1.
+     */
+    public synchronized double getUtilization(long nowMillis) {
+        if (startMillis < 0 || nowMillis <= startMillis) {
+            return 0;
+        }
+        long busy = busyMillis;
+        if (busySinceMillis >= 0) {
+            busy += nowMillis - Math.max(busySinceMillis, startMillis);
+        }
+        return (double) busy / (nowMillis - startMillis);
+    }
+
+    public long getStopsCount() {
+        return stops.sum();
+    }
+
+    public long getBoardedCount() {
+        return boarded.sum();
+    }
+
+    /**
+     * @return passengers delivered to their destination.
+     */
+    public long getAlightedCount() {
+        return alighted.sum();
+    }
+
+    public HistogramSnapshot getLockWaitNanos() {
+        return lockWaitNanos.snapshot();
+    }
+
+    public HistogramSnapshot getLockHoldNanos() {
+        return lockHoldNanos.snapshot();
+    }
+}
@@ -0,0 +1,74 @@
+package com.locusenergy.homework.metrics;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * All measurements of a building taken at one moment, by name, e.g. "wait_millis" or "elevator.Elevator 1.utilization".
+ * {@link #writeTo(Appendable)} renders them as text, one metric per line, for whatever collects them.
+ */
+public final class MetricsSnapshot {
+
+    private final Map<String, HistogramSnapshot> histograms;
+    private final Map<String, Number> values;
+
+    private MetricsSnapshot(Map<String, HistogramSnapshot> histograms, Map<String, Number> values) {
+        this.histograms = Collections.unmodifiableMap(histograms);
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    public static MetricsSnapshot of(BuildingMetrics building, Map<String, ElevatorMetrics> elevators, long nowMillis) {
+        Map<String, HistogramSnapshot> histograms = new LinkedHashMap<String, HistogramSnapshot>();
+        Map<String, Number> values = new LinkedHashMap<String, Number>();
+        values.put("calls", building.getCallsCount());
+        values.put("bypassed_pickups", building.getBypassedPickupsCount());
+        histograms.put("wait_millis", building.getWaitMillis());
+        histograms.put("travel_millis", building.getTravelMillis());
+        histograms.put("assignment_millis", building.getAssignmentMillis());
+        histograms.put("dispatch_nanos", building.getDispatchNanos());
+        for (Map.Entry<String, ElevatorMetrics> elevator : elevators.entrySet()) {
+            String prefix = "elevator." + elevator.getKey() + ".";
+            ElevatorMetrics metrics = elevator.getValue();
+            values.put(prefix + "utilization", metrics.getUtilization(nowMillis));
+            values.put(prefix + "stops", metrics.getStopsCount());
+            values.put(prefix + "boarded", metrics.getBoardedCount());
+            values.put(prefix + "alighted", metrics.getAlightedCount());
+            histograms.put(prefix + "lock_wait_nanos", metrics.getLockWaitNanos());
+            histograms.put(prefix + "lock_hold_nanos", metrics.getLockHoldNanos());
+        }
+        return new MetricsSnapshot(histograms, values);
+    }
+
+    /**
+     * @return histogram with the given name, or null.
+     */
+    public HistogramSnapshot getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * @return counter or gauge with the given name, or null.
+     */
+    public Number getValue(String name) {
+        return values.get(name);
+    }
+
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return histograms;
+    }
+
+    public Map<String, Number> getValues() {
+        return values;
+    }
+
+    public void writeTo(Appendable out) throws IOException {
+        for (Map.Entry<String, Number> value : values.entrySet()) {
+            out.append(value.getKey()).append(' ').append(String.valueOf(value.getValue())).append('\n');
+        }
+        for (Map.Entry<String, HistogramSnapshot> histogram : histograms.entrySet()) {
+            out.append(histogram.getKey()).append(' ').append(histogram.getValue().toString()).append('\n');
+        }
+    }
+}
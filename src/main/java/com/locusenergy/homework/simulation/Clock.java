@@ -0,0 +1,17 @@
+package com.locusenergy.homework.simulation;
+
+/**
+ * Time base for code which waits in real threads (elevator threads, tests). Lets the same code run in wall time,
+ * faster than wall time or in steps driven by hand.
+ *
+ * @see RealTimeClock
+ * @see ScaledClock
+ * @see ManualClock
+ */
+public interface Clock extends Ticker {
+
+    /**
+     * Blocks the calling thread until this clock has advanced by the given number of milliseconds.
+     */
+    void sleep(long millis) throws InterruptedException;
+}
@@ -0,0 +1,116 @@
+package com.locusenergy.homework.simulation;
+
+import java.util.PriorityQueue;
+
+/**
+ * Single-threaded discrete-event scheduler with a virtual clock.
+ * <p>
+ * Events are kept in a priority queue ordered by their due time (events due at the same time are run in the order
+ * they were scheduled). Nothing happens until some thread calls one of the run...() methods: that thread then
+ * executes the events one by one, advancing the clock straight to the time of the next event. This way simulated
+ * time runs as fast as the event handlers allow and thousands of elevators do not need thousands of threads.
+ * <p>
+ * Events can be scheduled from any thread, but only one thread should run them at a time.
+ * Several instances can be run in parallel on different threads (one per shard) as long as they share no elevators.
+ */
+public class DiscreteEventScheduler implements Scheduler {
+
+    private final PriorityQueue<Event> queue = new PriorityQueue<Event>();
+    private long now;
+    private long sequence;
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public synchronized void schedule(long delayMillis, Runnable event) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("Delay must not be negative. Given value: " + delayMillis);
+        }
+        queue.add(new Event(now + delayMillis, sequence++, event));
+    }
+
+    /**
+     * Runs the next event (if any), moving the clock to its due time.
+     *
+     * @return false if there were no events to run.
+     */
+    public boolean runNextEvent() {
+        Event event;
+        synchronized (this) {
+            event = queue.poll();
+            if (event == null) {
+                return false;
+            }
+            now = event.time;
+        }
+        event.action.run();
+        return true;
+    }
+
+    /**
+     * Runs all events due at or before the given time. The clock is left at that time even if there were no events.
+     *
+     * @param timeMillis virtual time to advance to.
+     */
+    public void runUntil(long timeMillis) {
+        while (true) {
+            Event event;
+            synchronized (this) {
+                Event next = queue.peek();
+                if (next == null || next.time > timeMillis) {
+                    now = Math.max(now, timeMillis);
+                    return;
+                }
+                event = queue.poll();
+                now = event.time;
+            }
+            event.action.run();
+        }
+    }
+
+    /**
+     * Advances the clock by the given amount of virtual time running all events due in between.
+     */
+    public void runFor(long durationMillis) {
+        runUntil(currentTimeMillis() + durationMillis);
+    }
+
+    /**
+     * Runs events until there are none left, i.e. until every elevator attached to this scheduler is idle.
+     */
+    public void runUntilIdle() {
+        while (runNextEvent()) {
+            // keep going
+        }
+    }
+
+    public synchronized int getPendingEventsCount() {
+        return queue.size();
+    }
+
+    private static class Event implements Comparable<Event> {
+        private final long time;
+        private final long sequence;
+        private final Runnable action;
+
+        private Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            if (sequence != other.sequence) {
+                return sequence < other.sequence ? -1 : 1;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.locusenergy.homework.simulation;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs events in real time on a ScheduledExecutorService. Any number of elevators can share a few threads this way,
+ * and idle elevators do not use them at all.
+ * <p>
+ * The executor is owned by the caller: shutting elevators down does not shut the executor down.
+ */
+public class ExecutorServiceScheduler implements Scheduler {
+
+    private final ScheduledExecutorService executor;
+
+    public ExecutorServiceScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable event) {
+        executor.schedule(event, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
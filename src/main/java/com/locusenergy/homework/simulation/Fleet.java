@@ -0,0 +1,243 @@
+package com.locusenergy.homework.simulation;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Simulates many buildings in parallel, in virtual time.
+ * <p>
+ * Buildings are partitioned across shards, one per core by default. Every shard owns a thread, a
+ * {@link DiscreteEventScheduler} and the buildings assigned to it, and touches nothing else, so shards never wait
+ * for each other. Requests for a building are queued to the thread of its shard and run there in FIFO order. They
+ * never run in the middle of {@link #runFor(long)} or {@link #runUntilIdle()}: a request queued while the shard is
+ * running waits until the whole run is over.
+ * <p>
+ * Callbacks of the futures returned by this class run on the shard thread too, so they can safely work with the
+ * building and its elevators (e.g. request a floor once an elevator is assigned).
+ */
+public class Fleet {
+
+    private final static Logger LOG = Logger.getLogger(Fleet.class);
+
+    /**
+     * Creates the building when it is added to a fleet. Elevators must be created with the given scheduler
+     * (see {@link com.locusenergy.homework.internal.ElevatorFactory#createElevator(String, int, int, int, Scheduler)})
+     * and the building must use it as its ticker.
+     */
+    public interface BuildingFactory {
+        Building createBuilding(Scheduler scheduler);
+    }
+
+    private final Shard[] shards;
+    private final AtomicInteger buildingsCount = new AtomicInteger();
+
+    /**
+     * Creates a fleet with a shard per available processor.
+     */
+    public Fleet() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param shardsCount number of shards (and threads). Must be greater than 0.
+     */
+    public Fleet(int shardsCount) {
+        if (shardsCount <= 0) {
+            throw new IllegalArgumentException("Number of shards must be greater than 0. Given value: " + shardsCount);
+        }
+        shards = new Shard[shardsCount];
+        for (int i = 0; i < shardsCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Adds a building to the next shard, round robin. The building is created on the shard thread. If the factory
+     * fails there, the id stays taken and every request for it completes exceptionally with IllegalStateException.
+     *
+     * @return id of the building in this fleet, to route requests with.
+     */
+    public synchronized int addBuilding(final BuildingFactory factory) {
+        // synchronized: buildings must be queued to their shard in the order of their ids
+        final int buildingId = buildingsCount.getAndIncrement();
+        final Shard shard = shardOf(buildingId);
+        shard.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Building building = null;
+                try {
+                    building = factory.createBuilding(shard.scheduler);
+                } catch (RuntimeException e) {
+                    LOG.error("failed to create building " + buildingId, e);
+                } finally {
+                    // the slot is taken even if the factory fails, so later buildings keep their ids
+                    shard.buildings.add(building);
+                }
+            }
+        });
+        return buildingId;
+    }
+
+    /**
+     * Queues the call to the shard which owns the building.
+     *
+     * @return future completed with the assigned elevator, or exceptionally if the call is invalid.
+     */
+    public CompletableFuture<Elevator> callElevatorAsync(int buildingId, final HallCall hallCall) {
+        return withBuilding(buildingId, new Function<Building, CompletableFuture<Elevator>>() {
+            @Override
+            public CompletableFuture<Elevator> apply(Building building) {
+                return building.callElevatorAsync(hallCall);
+            }
+        }).thenCompose(Function.<CompletableFuture<Elevator>>identity());
+    }
+
+    /**
+     * Runs the action with the building on the thread of its shard.
+     *
+     * @return future completed with the result of the action.
+     */
+    public <T> CompletableFuture<T> withBuilding(final int buildingId, final Function<? super Building, ? extends T> action) {
+        checkBuildingId(buildingId);
+        final Shard shard = shardOf(buildingId);
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        shard.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Building building = shard.buildings.get(buildingId / shards.length);
+                    if (building == null) {
+                        throw new IllegalStateException("Building " + buildingId + " could not be created");
+                    }
+                    result.complete(action.apply(building));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Advances virtual time of all buildings by the given amount, shards in parallel. Requests queued before this
+     * call are processed first.
+     */
+    public void runFor(final long durationMillis) throws InterruptedException {
+        List<Future<?>> runs = new ArrayList<Future<?>>(shards.length);
+        for (final Shard shard : shards) {
+            runs.add(shard.executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    shard.scheduler.runFor(durationMillis);
+                }
+            }));
+        }
+        awaitAll(runs);
+    }
+
+    /**
+     * Runs all shards until every elevator in the fleet is idle.
+     */
+    public void runUntilIdle() throws InterruptedException {
+        List<Future<?>> runs = new ArrayList<Future<?>>(shards.length);
+        for (final Shard shard : shards) {
+            runs.add(shard.executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    shard.scheduler.runUntilIdle();
+                }
+            }));
+        }
+        awaitAll(runs);
+    }
+
+    /**
+     * Shuts down all buildings and stops the shard threads.
+     */
+    public void shutdown() {
+        for (final Shard shard : shards) {
+            shard.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (Building building : shard.buildings) {
+                        if (building != null) {
+                            building.shutdown();
+                        }
+                    }
+                }
+            });
+            shard.executor.shutdown();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Shard shard : shards) {
+            if (!shard.executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getShardsCount() {
+        return shards.length;
+    }
+
+    public int getBuildingsCount() {
+        return buildingsCount.get();
+    }
+
+    private Shard shardOf(int buildingId) {
+        return shards[buildingId % shards.length];
+    }
+
+    private void checkBuildingId(int buildingId) {
+        if (buildingId < 0 || buildingId >= buildingsCount.get()) {
+            throw new IllegalArgumentException("Unknown building id: " + buildingId);
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                LOG.error("shard failed", e.getCause());
+                throw new IllegalStateException("Shard failed", e.getCause());
+            }
+        }
+    }
+
+    private static class Shard {
+        private final DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        private final ExecutorService executor;
+        // accessed by the shard thread only. null where the factory failed
+        private final List<Building> buildings = new ArrayList<Building>();
+
+        private Shard(final int number) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "fleet-shard-" + number);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+}
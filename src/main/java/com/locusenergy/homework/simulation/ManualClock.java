@@ -0,0 +1,42 @@
+package com.locusenergy.homework.simulation;
+
+/**
+ * Clock which only moves when {@link #advance(long)} is called. Sleeping threads wake up when the clock passes
+ * the end of their sleep.
+ */
+public class ManualClock implements Clock {
+
+    private long now;
+
+    public ManualClock() {
+        this(0);
+    }
+
+    public ManualClock(long startMillis) {
+        this.now = startMillis;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public synchronized void sleep(long millis) throws InterruptedException {
+        long wakeUpTime = now + millis;
+        while (now < wakeUpTime) {
+            wait();
+        }
+    }
+
+    /**
+     * Moves the clock forward, waking up every thread whose sleep has ended.
+     */
+    public synchronized void advance(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Clock cannot go back. Given value: " + millis);
+        }
+        now += millis;
+        notifyAll();
+    }
+}
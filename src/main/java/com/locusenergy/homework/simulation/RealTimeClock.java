@@ -0,0 +1,19 @@
+package com.locusenergy.homework.simulation;
+
+/**
+ * Wall time.
+ */
+public class RealTimeClock implements Clock {
+
+    public static final RealTimeClock INSTANCE = new RealTimeClock();
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+}
@@ -0,0 +1,18 @@
+package com.locusenergy.homework.simulation;
+
+/**
+ * Source of time and of delayed execution for elevators. Elevators do not sleep on their own when they are
+ * attached to a Scheduler, they just ask it to run their next step later.
+ * <p>
+ * Implementations must allow {@link #schedule(long, Runnable)} to be called from any thread.
+ */
+public interface Scheduler extends Ticker {
+
+    /**
+     * Registers an event to be run after the given delay.
+     *
+     * @param delayMillis delay in milliseconds, relative to {@link #currentTimeMillis()}. Must not be negative.
+     * @param event       event handler. Should be quick and must not block.
+     */
+    void schedule(long delayMillis, Runnable event);
+}
@@ -0,0 +1,12 @@
+package com.locusenergy.homework.simulation;
+
+/**
+ * Source of current time, real or simulated. It is all that code which only measures time needs to know.
+ */
+public interface Ticker {
+
+    /**
+     * @return current time in milliseconds. Can be virtual (simulated) time, which has nothing to do with wall time.
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,76 @@
+package com.locusenergy.homework.traffic;
+
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.HallCall;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streams calls back from a log written by {@link CallLogWriter}, one at a time, so logs of any size can be read.
+ */
+public class CallLogReader implements Closeable {
+
+    private final DataInputStream in;
+    private long lastTimeMillis;
+
+    public CallLogReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        int magic = this.in.readInt();
+        if (magic != CallLogWriter.MAGIC) {
+            throw new IOException("Not a call log: wrong magic number " + Integer.toHexString(magic));
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != CallLogWriter.VERSION) {
+            throw new IOException("Unsupported call log version " + version);
+        }
+    }
+
+    /**
+     * @return the next call, or null at the end of the log.
+     */
+    public TimedCall read() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        try {
+            lastTimeMillis += readVarint(first);
+            int floor = (int) readVarint(in.readUnsignedByte());
+            int code = (int) readVarint(in.readUnsignedByte());
+            HallCall hallCall;
+            if (code >= 2) {
+                hallCall = new HallCall(floor, code - 1);
+            } else {
+                hallCall = new HallCall(floor, code == 1 ? Direction.UP : Direction.DOWN);
+            }
+            return new TimedCall(lastTimeMillis, hallCall);
+        } catch (EOFException e) {
+            throw new IOException("Call log is truncated", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private long readVarint(int firstByte) throws IOException {
+        long value = firstByte & 0x7F;
+        int shift = 7;
+        int b = firstByte;
+        while ((b & 0x80) != 0) {
+            if (shift > 63) {
+                throw new IOException("Malformed varint in call log");
+            }
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
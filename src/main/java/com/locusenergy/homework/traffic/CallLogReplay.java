@@ -0,0 +1,51 @@
+package com.locusenergy.homework.traffic;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Feeds a call log into a building whose elevators run on a {@link DiscreteEventScheduler}, so that a whole peak
+ * is replayed as fast as the CPU allows. Every call is made at its time from the log (relative to the time the
+ * replay starts at), and every passenger boards the elevator when it picks them up and requests their destination.
+ * A passenger who finds the elevator full calls again.
+ */
+public class CallLogReplay {
+
+    private CallLogReplay() {
+    }
+
+    /**
+     * Replays the whole log and runs the scheduler until all elevators are idle.
+     *
+     * @return number of calls replayed.
+     */
+    public static int replay(CallLogReader reader, Building building, DiscreteEventScheduler scheduler) throws IOException {
+        long startMillis = scheduler.currentTimeMillis();
+        int count = 0;
+        TimedCall call;
+        while ((call = reader.read()) != null) {
+            scheduler.runUntil(startMillis + call.getTimeMillis());
+            call(building, call.getHallCall());
+            count++;
+        }
+        scheduler.runUntilIdle();
+        return count;
+    }
+
+    private static void call(final Building building, final HallCall hallCall) {
+        building.pickUpAsync(hallCall).thenAccept(new Consumer<Elevator>() {
+            @Override
+            public void accept(Elevator elevator) {
+                if (hallCall.hasDestination() && !elevator.board(hallCall.getDestinationFloor())) {
+                    // no room left, wait for the next elevator
+                    call(building, hallCall);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,72 @@
+package com.locusenergy.homework.traffic;
+
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.HallCall;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes calls in the compact binary call log format read by {@link CallLogReader}.
+ * <p>
+ * The log starts with the {@link #MAGIC} number and the format {@link #VERSION}. Every call is then three unsigned
+ * varints (7 bits per byte, low bits first): the time since the previous call, the floor, and the call code -
+ * 0 for a DOWN button, 1 for an UP button or the destination floor + 1. A typical call takes 3-4 bytes.
+ */
+public class CallLogWriter implements Closeable {
+
+    static final int MAGIC = 0x454c5643; // "ELVC"
+    static final int VERSION = 1;
+
+    private final DataOutputStream out;
+    private long lastTimeMillis;
+
+    public CallLogWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the call is earlier than the previous one
+     */
+    public void write(TimedCall call) throws IOException {
+        long delta = call.getTimeMillis() - lastTimeMillis;
+        if (delta < 0) {
+            throw new IllegalArgumentException("Calls must be written in the order of their time: " + call
+                    + " after " + lastTimeMillis + " ms");
+        }
+        lastTimeMillis = call.getTimeMillis();
+        HallCall hallCall = call.getHallCall();
+        writeVarint(delta);
+        writeVarint(hallCall.getFloor());
+        if (hallCall.hasDestination()) {
+            writeVarint(hallCall.getDestinationFloor() + 1);
+        } else {
+            writeVarint(hallCall.getDirection() == Direction.UP ? 1 : 0);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeVarint(long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values are not supported: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,33 @@
+package com.locusenergy.homework.traffic;
+
+import com.locusenergy.homework.HallCall;
+
+/**
+ * A hall call together with the time it is made at, relative to the start of the traffic.
+ */
+public final class TimedCall {
+
+    private final long timeMillis;
+    private final HallCall hallCall;
+
+    public TimedCall(long timeMillis, HallCall hallCall) {
+        if (timeMillis < 0) {
+            throw new IllegalArgumentException("Time must not be negative. Given value: " + timeMillis);
+        }
+        this.timeMillis = timeMillis;
+        this.hallCall = hallCall;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public HallCall getHallCall() {
+        return hallCall;
+    }
+
+    @Override
+    public String toString() {
+        return timeMillis + " ms " + hallCall;
+    }
+}
@@ -0,0 +1,109 @@
+package com.locusenergy.homework.traffic;
+
+import com.locusenergy.homework.HallCall;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates destination calls following a {@link TrafficPattern}.
+ * <p>
+ * Every floor has a Poisson arrival process with a rate set by the pattern: the lobby gets the incoming share of
+ * the traffic, every upper floor an equal part of the rest. Together they form one Poisson process with the total
+ * rate, so the generator draws exponential gaps with the total rate and then picks the floor in proportion to its
+ * rate. The same seed always gives the same calls.
+ */
+public class TrafficGenerator {
+
+    private static final int LOBBY = 1;
+
+    private final int numberOfFloors;
+    private final TrafficPattern pattern;
+    private final double callsPerMilli;
+    private final Random random;
+    // cumulative arrival rates per floor, normalized to 1. index 0 is the lobby
+    private final double[] floorShares;
+    private long timeMillis;
+
+    /**
+     * @param numberOfFloors  floors of the building, at least 3 so that there is traffic between upper floors
+     * @param callsPerMinute  total arrival rate of the building
+     * @param seed            seed of the random generator
+     */
+    public TrafficGenerator(int numberOfFloors, TrafficPattern pattern, double callsPerMinute, long seed) {
+        if (numberOfFloors < 3) {
+            throw new IllegalArgumentException("Number of floors must be at least 3. Given value: " + numberOfFloors);
+        }
+        if (callsPerMinute <= 0) {
+            throw new IllegalArgumentException("Rate must be greater than 0. Given value: " + callsPerMinute);
+        }
+        this.numberOfFloors = numberOfFloors;
+        this.pattern = pattern;
+        this.callsPerMilli = callsPerMinute / 60000;
+        this.random = new Random(seed);
+        this.floorShares = new double[numberOfFloors];
+        double upperFloorShare = (1 - pattern.getIncomingShare()) / (numberOfFloors - 1);
+        floorShares[0] = pattern.getIncomingShare();
+        for (int i = 1; i < numberOfFloors; i++) {
+            floorShares[i] = floorShares[i - 1] + upperFloorShare;
+        }
+    }
+
+    /**
+     * @return the next call. Calls come in the order of their time.
+     */
+    public TimedCall next() {
+        timeMillis += Math.round(-Math.log(1 - random.nextDouble()) / callsPerMilli);
+        int floor = pickFloor();
+        return new TimedCall(timeMillis, new HallCall(floor, pickDestination(floor)));
+    }
+
+    /**
+     * Writes all calls made in the given time from now.
+     *
+     * @return number of calls written.
+     */
+    public int generate(long durationMillis, CallLogWriter writer) throws IOException {
+        long endMillis = timeMillis + durationMillis;
+        int count = 0;
+        while (true) {
+            TimedCall call = next();
+            if (call.getTimeMillis() > endMillis) {
+                timeMillis = endMillis;
+                return count;
+            }
+            writer.write(call);
+            count++;
+        }
+    }
+
+    private int pickFloor() {
+        double value = random.nextDouble();
+        for (int i = 0; i < floorShares.length - 1; i++) {
+            if (value < floorShares[i]) {
+                return i + 1;
+            }
+        }
+        return numberOfFloors;
+    }
+
+    private int pickDestination(int floor) {
+        if (floor == LOBBY) {
+            return randomUpperFloor(LOBBY);
+        }
+        // calls from upper floors go either to the lobby or to another upper floor
+        double toLobbyShare = pattern.getOutgoingShare() / (pattern.getOutgoingShare() + pattern.getInterfloorShare());
+        if (random.nextDouble() < toLobbyShare) {
+            return LOBBY;
+        }
+        return randomUpperFloor(floor);
+    }
+
+    private int randomUpperFloor(int except) {
+        int floor;
+        do {
+            floor = 2 + random.nextInt(numberOfFloors - 1);
+        } while (floor == except);
+        return floor;
+    }
+}
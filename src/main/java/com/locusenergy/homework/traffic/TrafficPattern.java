@@ -0,0 +1,49 @@
+package com.locusenergy.homework.traffic;
+
+/**
+ * Standard office traffic patterns: how much of the traffic starts at the lobby (floor 1), ends there, or goes
+ * between upper floors.
+ */
+public enum TrafficPattern {
+    /**
+     * Morning: almost everybody comes in at the lobby and goes up.
+     */
+    UP_PEAK(0.85, 0.05),
+    /**
+     * Lunch: people go out to the lobby and come back at about the same rate.
+     */
+    LUNCH(0.45, 0.45),
+    /**
+     * Evening: almost everybody goes down to the lobby.
+     */
+    DOWN_PEAK(0.05, 0.85);
+
+    private final double incomingShare;
+    private final double outgoingShare;
+
+    TrafficPattern(double incomingShare, double outgoingShare) {
+        this.incomingShare = incomingShare;
+        this.outgoingShare = outgoingShare;
+    }
+
+    /**
+     * @return share of the calls made at the lobby going up.
+     */
+    public double getIncomingShare() {
+        return incomingShare;
+    }
+
+    /**
+     * @return share of the calls made at upper floors going down to the lobby.
+     */
+    public double getOutgoingShare() {
+        return outgoingShare;
+    }
+
+    /**
+     * @return share of the calls between upper floors.
+     */
+    public double getInterfloorShare() {
+        return 1 - incomingShare - outgoingShare;
+    }
+}
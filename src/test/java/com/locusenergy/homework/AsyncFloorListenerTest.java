@@ -0,0 +1,175 @@
+package com.locusenergy.homework;
+
+import com.locusenergy.homework.AsyncFloorListener.OverflowPolicy;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.locusenergy.homework.RecorderFloorListenerAssert.assertThat;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AsyncFloorListenerTest {
+
+    @Test
+    public void floorsAreDeliveredInOrderEvenAfterListenerFailure() throws InterruptedException {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecorderFloorListener recorder = new RecorderFloorListener() {
+            @Override
+            public void floorVisited(int floor) {
+                delivering.countDown();
+                awaitUninterruptibly(release);
+                super.floorVisited(floor);
+                if (floor == 2) {
+                    throw new IllegalStateException("broken listener");
+                }
+            }
+        };
+        AsyncFloorListener listener = new AsyncFloorListener(recorder, 16, OverflowPolicy.BLOCK);
+
+        listener.floorVisited(1);
+        delivering.await();
+        // floors 2, 3 and 4 go to the listener in one batch
+        listener.floorVisited(2);
+        listener.floorVisited(3);
+        listener.floorVisited(4);
+        release.countDown();
+        assertThat(listener.flush(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(recorder).onlyVisited(1, 2, 3, 4);
+        assertThat(listener.getDroppedCount()).isEqualTo(1);
+        listener.close();
+    }
+
+    @Test
+    public void failedBatchIsCountedAsDropped() throws InterruptedException {
+        FloorListener batchListener = new FloorListener() {
+            @Override
+            public void floorVisited(int floor) {
+            }
+
+            @Override
+            public void floorsVisited(int[] floors, int count) {
+                throw new IllegalStateException("broken listener");
+            }
+        };
+        AsyncFloorListener listener = new AsyncFloorListener(batchListener, 16, OverflowPolicy.BLOCK);
+
+        listener.floorVisited(1);
+        assertThat(listener.flush(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(listener.getDroppedCount()).isEqualTo(1);
+        listener.close();
+    }
+
+    @Test
+    public void oldestFloorsAreDroppedWhenListenerIsTooSlow() throws InterruptedException {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecorderFloorListener recorder = new RecorderFloorListener() {
+            @Override
+            public void floorVisited(int floor) {
+                delivering.countDown();
+                awaitUninterruptibly(release);
+                super.floorVisited(floor);
+            }
+        };
+        AsyncFloorListener listener = new AsyncFloorListener(recorder, 2, OverflowPolicy.DROP_OLDEST);
+
+        listener.floorVisited(1);
+        delivering.await();
+        // the delivery thread is stuck with floor 1, the buffer only has room for 2 floors
+        listener.floorVisited(2);
+        listener.floorVisited(3);
+        listener.floorVisited(4);
+        release.countDown();
+        assertThat(listener.flush(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(listener.getDroppedCount()).isEqualTo(1);
+        assertThat(recorder).onlyVisited(1, 3, 4);
+        listener.close();
+    }
+
+    @Test
+    public void interruptedProducerDropsFloorInsteadOfBlocking() throws InterruptedException {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecorderFloorListener recorder = new RecorderFloorListener() {
+            @Override
+            public void floorVisited(int floor) {
+                delivering.countDown();
+                awaitUninterruptibly(release);
+                super.floorVisited(floor);
+            }
+        };
+        final AsyncFloorListener listener = new AsyncFloorListener(recorder, 1, OverflowPolicy.BLOCK);
+        listener.floorVisited(1);
+        delivering.await();
+        listener.floorVisited(2);
+
+        final AtomicBoolean interruptKept = new AtomicBoolean();
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // the buffer is full and the delivery thread is stuck with floor 1
+                listener.floorVisited(3);
+                interruptKept.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        producer.start();
+        producer.interrupt();
+        producer.join(5000);
+
+        assertThat(producer.isAlive()).isFalse();
+        assertThat(interruptKept.get()).isTrue();
+        release.countDown();
+        assertThat(listener.flush(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(recorder).onlyVisited(1, 2);
+        assertThat(listener.getDroppedCount()).isEqualTo(1);
+        listener.close();
+    }
+
+    @Test
+    public void shutdownWakesBlockedProducerAndDropsUndeliveredFloors() throws InterruptedException {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecorderFloorListener recorder = new RecorderFloorListener() {
+            @Override
+            public void floorVisited(int floor) {
+                delivering.countDown();
+                awaitUninterruptibly(release);
+                super.floorVisited(floor);
+            }
+        };
+        final AsyncFloorListener listener = new AsyncFloorListener(recorder, 1, OverflowPolicy.BLOCK);
+        listener.floorVisited(1);
+        delivering.await();
+        listener.floorVisited(2);
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                listener.floorVisited(3);
+            }
+        });
+        producer.start();
+        listener.shutdown();
+        producer.join(5000);
+
+        assertThat(producer.isAlive()).isFalse();
+        // floors 2 and 3 are dropped, the interrupted delegate still records floor 1
+        assertThat(listener.flush(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(recorder).onlyVisited(1);
+        assertThat(listener.getDroppedCount()).isEqualTo(2);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,26 +1,44 @@
 package com.locusenergy.homework;
 
+import com.locusenergy.homework.dispatch.DestinationDispatchStrategy;
+import com.locusenergy.homework.dispatch.EtaDispatchStrategy;
+import com.locusenergy.homework.dispatch.HomeFloorParkingPolicy;
+import com.locusenergy.homework.dispatch.NearestCarDispatchStrategy;
 import com.locusenergy.homework.internal.ElevatorFactory;
+import com.locusenergy.homework.internal.ExecutionMode;
+import com.locusenergy.homework.metrics.MetricsSnapshot;
+import com.locusenergy.homework.simulation.Clock;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import com.locusenergy.homework.simulation.ScaledClock;
 import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static com.locusenergy.homework.Direction.DOWN;
 import static com.locusenergy.homework.Direction.UP;
 import static com.locusenergy.homework.ElevatorAssert.assertThat;
 import static com.locusenergy.homework.RecorderFloorListenerAssert.assertThat;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * This class is not thread safe, its methods cannot be run in parallel, which is acceptable because JUnit will
@@ -35,6 +53,9 @@ public class BuildingTest {
 
     private static final int NUMBER_OF_FLOORS = 100;
 
+    // elevator threads run 10 times faster than in real life
+    private static final Clock CLOCK = new ScaledClock(10);
+
     private static final String ELEVATOR_1 = "Elevator 1";
     private static final String ELEVATOR_2 = "Elevator 2";
     private static final String ELEVATOR_3 = "Elevator 3";
@@ -43,6 +64,14 @@ public class BuildingTest {
 
     private Building building;
 
+    @After
+    public void shutdownBuilding() throws InterruptedException {
+        if (building != null) {
+            building.shutdown();
+            assertThat(building.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void illegalParameterGivesException() {
         new Building(0, Collections.<Elevator>emptySet());
@@ -100,10 +129,12 @@ public class BuildingTest {
     }
 
     @Test
-    public void nearestNonBusyElevatorIsReturned() {
+    public void nearestNonBusyElevatorIsReturned() throws InterruptedException {
         initBuildingWithElevatorsAtFloors(1, 50, NUMBER_OF_FLOORS);
 
         Elevator elevator1 = building.callElevator(1, UP);
+        // until the elevator opens its doors, another call from the floor would join the first one
+        assertThat(elevator1.awaitIdle(1, TimeUnit.MINUTES)).isTrue();
         elevator1.requestFloor(10); // going 1 --> 10
 
         assertThat(building.callElevator(1, UP)).hasName(ELEVATOR_2);
@@ -186,6 +217,52 @@ public class BuildingTest {
         assertThat(getListenerFor(elevator)).onlyVisited(4, 5, 4, 3, 2, 1);
     }
 
+    @Test
+    public void asyncCallWaitsWithoutBlockingUntilElevatorBecomesAvailable() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        building = new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+
+        elevator.requestFloor(10); // going 1 --> 10
+        CompletableFuture<Elevator> call = building.callElevatorAsync(5, DOWN);
+        assertThat(call.isDone()).isFalse();
+
+        scheduler.runUntilIdle();
+        assertThat(call.getNow(null)).hasName(ELEVATOR_1);
+        assertThat(elevator).hasCurrentFloor(5);
+    }
+
+    @Test
+    public void destinationDispatchGroupsPassengersGoingToTheSameFloor() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        HashSet<Elevator> elevators = new HashSet<Elevator>();
+        elevators.add(ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler));
+        elevators.add(ElevatorFactory.createElevator(ELEVATOR_2, 1, 1, NUMBER_OF_FLOORS, scheduler));
+        building = new Building(NUMBER_OF_FLOORS, elevators, new DestinationDispatchStrategy(), scheduler);
+
+        Elevator first = building.callElevatorAsync(new HallCall(1, 10)).join();
+        Elevator second = building.callElevatorAsync(new HallCall(1, 10)).join();
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void arrivalIsNotifiedWhenElevatorStopsAtTheFloor() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+
+        CompletableFuture<Void> arrival = elevator.arrivalAt(3);
+        elevator.requestFloor(5);
+        scheduler.runUntil(350);
+        // passing 3rd floor on the way to 5th is not an arrival
+        assertThat(arrival.isDone()).isFalse();
+
+        elevator.requestFloor(3);
+        scheduler.runUntilIdle();
+        assertThat(arrival.isDone()).isTrue();
+        assertThat(elevator.arrivalAt(3).isDone()).isTrue();
+    }
+
     // TODO this test uses Random generator and thus should not be a part of regular testing to avoid ND problems.
     // This is really a DEMO and not a real test.
     @Test
@@ -225,23 +302,387 @@ public class BuildingTest {
     }
 
     private void waitUntilElevatorIsDone(Elevator elevator) {
-        while (true) {
-            if (elevator.isBusy()) {
-                try {
-                    Thread.sleep(30);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            } else {
-                return;
+        try {
+            assertThat(elevator.awaitIdle(1, TimeUnit.MINUTES)).isTrue();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void metricsMeasureWaitAndTravel() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        building = new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+
+        building.callElevatorAsync(new HallCall(3, 5));
+        scheduler.runUntilIdle();
+        elevator.requestFloor(5);
+        scheduler.runUntilIdle();
+        scheduler.runFor(400);
+
+        MetricsSnapshot metrics = building.getMetrics();
+        assertThat(metrics.getValue("calls")).isEqualTo(1L);
+        assertThat(metrics.getHistogram("wait_millis").getMax()).isEqualTo(300);
+        assertThat(metrics.getHistogram("travel_millis").getMax()).isEqualTo(400);
+        assertThat(metrics.getValue("elevator." + ELEVATOR_1 + ".stops")).isEqualTo(2L);
+        assertThat(metrics.getValue("elevator." + ELEVATOR_1 + ".utilization").doubleValue()).isGreaterThan(0).isLessThan(1);
+    }
+
+    @Test
+    public void nobodyCanBoardFullElevator() {
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, new DiscreteEventScheduler());
+        elevator.setCapacity(2);
+
+        assertThat(elevator.board(5)).isTrue();
+        assertThat(elevator.board(7)).isTrue();
+        assertThat(elevator.board(9)).isFalse();
+        assertThat(elevator.snapshot().getLoad()).isEqualTo(2);
+        assertThat(elevator.snapshot().isFullyLoaded()).isTrue();
+    }
+
+    @Test
+    public void fullElevatorPassesCallerByAndAnotherElevatorIsSent() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator nearest = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        Elevator farthest = ElevatorFactory.createElevator(ELEVATOR_2, 50, 1, NUMBER_OF_FLOORS, scheduler);
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        elevators.add(nearest);
+        elevators.add(farthest);
+        building = new Building(NUMBER_OF_FLOORS, elevators, new NearestCarDispatchStrategy(), scheduler);
+        nearest.setCapacity(1);
+
+        assertThat(building.callElevatorAsync(5, UP).join()).isSameAs(nearest);
+        // somebody else gets in first and fills the elevator up
+        assertThat(nearest.board(10)).isTrue();
+        scheduler.runUntilIdle();
+
+        assertThat(nearest).hasCurrentFloor(10);
+        assertThat(farthest).hasCurrentFloor(5);
+        MetricsSnapshot metrics = building.getMetrics();
+        assertThat(metrics.getValue("bypassed_pickups")).isEqualTo(1L);
+        assertThat(metrics.getValue("elevator." + ELEVATOR_1 + ".stops")).isEqualTo(1L);
+        assertThat(metrics.getValue("elevator." + ELEVATOR_1 + ".alighted")).isEqualTo(1L);
+    }
+
+    @Test
+    public void callerPassedByFullElevatorBoardsTheNextOne() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator nearest = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        Elevator farthest = ElevatorFactory.createElevator(ELEVATOR_2, 50, 1, NUMBER_OF_FLOORS, scheduler);
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        elevators.add(nearest);
+        elevators.add(farthest);
+        building = new Building(NUMBER_OF_FLOORS, elevators, new NearestCarDispatchStrategy(), scheduler);
+        nearest.setCapacity(1);
+
+        final List<Boolean> boarded = new ArrayList<Boolean>();
+        CompletableFuture<Elevator> pickedUp = building.pickUpAsync(new HallCall(5, 8));
+        pickedUp.thenAccept(new Consumer<Elevator>() {
+            @Override
+            public void accept(Elevator elevator) {
+                boarded.add(elevator.board(8));
             }
+        });
+        assertThat(nearest.board(10)).isTrue();
+        scheduler.runUntilIdle();
+
+        assertThat(pickedUp.join()).isSameAs(farthest);
+        assertThat(boarded).containsExactly(true);
+        assertThat(farthest).hasCurrentFloor(8);
+        assertThat(farthest.getMetrics().getAlightedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void idleElevatorIsParkedAtLobbyAfterTimeout() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        building = new Building(NUMBER_OF_FLOORS, Collections.singletonList(new ElevatorGroup("all",
+                Collections.singleton(elevator), new NearestCarDispatchStrategy(), new HomeFloorParkingPolicy(1), 1000)),
+                scheduler);
+
+        elevator.requestFloor(10);
+        scheduler.runFor(1500);
+        assertThat(elevator).hasCurrentFloor(10);
+        assertThat(elevator.isBusy()).isFalse();
+
+        scheduler.runUntilIdle();
+        assertThat(elevator).hasCurrentFloor(1);
+    }
+
+    @Test
+    public void parkingTripIsGivenUpForCall() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 10, 1, NUMBER_OF_FLOORS, scheduler);
+        elevator.park(1);
+        scheduler.runFor(300); // going down, at 7
+
+        elevator.requestPickup(9);
+        scheduler.runUntilIdle();
+        assertThat(elevator).hasCurrentFloor(9);
+    }
+
+    @Test
+    public void identicalCallsFromOneFloorShareOneElevator() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        building = new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+
+        elevator.requestFloor(10); // going 1 --> 10, takes the UP call on the way
+        CompletableFuture<Elevator> up = building.callElevatorAsync(5, UP);
+        CompletableFuture<Elevator> down = building.callElevatorAsync(5, DOWN);
+        CompletableFuture<Elevator> downAgain = building.callElevatorAsync(5, DOWN);
+        assertThat(building.getPendingCalls()).hasSize(1);
+        assertThat(building.isHallCallRegistered(5, UP)).isTrue();
+        assertThat(building.isHallCallRegistered(5, DOWN)).isTrue();
+
+        scheduler.runUntilIdle();
+        assertThat(up.join()).isSameAs(elevator);
+        assertThat(down.join()).isSameAs(elevator);
+        assertThat(downAgain.join()).isSameAs(elevator);
+        assertThat(building.isHallCallRegistered(5, UP)).isFalse();
+        assertThat(building.isHallCallRegistered(5, DOWN)).isFalse();
+        MetricsSnapshot metrics = building.getMetrics();
+        assertThat(metrics.getValue("calls")).isEqualTo(3L);
+        assertThat(metrics.getHistogram("wait_millis").getCount()).isEqualTo(3);
+        // 5 on the way up, 10, and 5 again on the way down
+        assertThat(metrics.getValue("elevator." + ELEVATOR_1 + ".stops")).isEqualTo(3L);
+    }
+
+    @Test
+    public void expressRunSkipsStopsAndMakesThemAfterwards() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        RecorderFloorListener listener = new RecorderFloorListener();
+        elevator.setFloorListener(listener);
+        elevator.requestFloors(3, 5);
+        CompletableFuture<Void> atThirdFloor = elevator.arrivalAt(3);
+        scheduler.runFor(150); // at 2
+
+        elevator.moveElevator(7);
+        CompletableFuture<Void> atTarget = elevator.arrivalAt(7);
+        scheduler.runFor(600);
+        assertThat(atTarget.isDone()).isTrue();
+        assertThat(atThirdFloor.isDone()).isFalse();
+
+        scheduler.runUntilIdle();
+        assertThat(listener).onlyVisited(2, 3, 4, 5, 6, 7, 6, 5, 4, 3);
+        assertThat(atThirdFloor.isDone()).isTrue();
+        assertThat(elevator.getMetrics().getStopsCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void elevatorOnExpressRunTakesNoCalls() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator express = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        Elevator other = ElevatorFactory.createElevator(ELEVATOR_2, 10, 1, NUMBER_OF_FLOORS, scheduler);
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        elevators.add(express);
+        elevators.add(other);
+        building = new Building(NUMBER_OF_FLOORS, elevators, new NearestCarDispatchStrategy(), scheduler);
+
+        express.moveElevator(20);
+        assertThat(express.snapshot().isExpress()).isTrue();
+        assertThat(building.callElevatorAsync(2, UP).join()).isSameAs(other);
+    }
+
+    @Test
+    public void batchOfCallsIsDispatchedTogether() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        elevators.add(ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler));
+        elevators.add(ElevatorFactory.createElevator(ELEVATOR_2, 1, 1, NUMBER_OF_FLOORS, scheduler));
+        building = new Building(NUMBER_OF_FLOORS, elevators, new DestinationDispatchStrategy(), scheduler);
+
+        List<CompletableFuture<Elevator>> assigned = building.callElevatorsAsync(new HallCall[]{
+                new HallCall(1, 10), new HallCall(1, 11), new HallCall(1, 50)});
+        scheduler.runUntilIdle();
+
+        assertThat(assigned).hasSize(3);
+        assertThat(assigned.get(1).join()).isSameAs(assigned.get(0).join());
+        assertThat(assigned.get(2).join()).isNotSameAs(assigned.get(0).join());
+    }
+
+    @Test
+    public void batchWithInvalidFloorRequestsNothing() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, 10, scheduler);
+        try {
+            elevator.requestFloors(3, 11);
+            fail("floor 11 is out of the elevator limits");
+        } catch (InvalidRequest expected) {
+        }
+        assertThat(elevator.isBusy()).isFalse();
+
+        elevator.requestFloors(3, 5);
+        scheduler.runUntilIdle();
+        assertThat(elevator).hasCurrentFloor(5);
+    }
+
+    @Test
+    public void callsGoToGroupServingTheirFloors() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator lowRise = ElevatorFactory.createElevator("Low rise", 1, 1, 10, scheduler);
+        Elevator highRise = ElevatorFactory.createElevator("High rise", 1, 1, 20, scheduler);
+        building = new Building(20, Arrays.asList(
+                new ElevatorGroup("low", Collections.singleton(lowRise), new NearestCarDispatchStrategy()),
+                new ElevatorGroup("high", Collections.singleton(highRise), new NearestCarDispatchStrategy(),
+                        1, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20)), scheduler);
+
+        CompletableFuture<Elevator> fromUpperFloor = building.callElevatorAsync(15, DOWN);
+        CompletableFuture<Elevator> fromLowerFloor = building.callElevatorAsync(5, UP);
+        CompletableFuture<Elevator> toUpperFloor = building.callElevatorAsync(new HallCall(1, 15));
+        scheduler.runUntilIdle();
+
+        assertThat(fromUpperFloor.join()).isSameAs(highRise);
+        assertThat(fromLowerFloor.join()).isSameAs(lowRise);
+        assertThat(toUpperFloor.join()).isSameAs(highRise);
+    }
+
+    @Test
+    public void elevatorIsNotSentToFloorItCannotReach() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        elevators.add(ElevatorFactory.createElevator("Parking", 3, 1, 3, scheduler));
+        Elevator main = ElevatorFactory.createElevator("Main", 1, 1, 10, scheduler);
+        elevators.add(main);
+        building = new Building(10, elevators);
+
+        CompletableFuture<Elevator> call = building.callElevatorAsync(8, DOWN);
+        scheduler.runUntilIdle();
+
+        assertThat(call.join()).isSameAs(main);
+    }
+
+    @Test
+    public void etaDispatchComparesElevatorsByTheirOwnSpeed() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        Elevator slow = ElevatorFactory.createElevator("Slow", 5, 1, 10, 1000, scheduler);
+        elevators.add(slow);
+        Elevator fast = ElevatorFactory.createElevator("Fast", 1, 1, 10, 100, scheduler);
+        elevators.add(fast);
+        building = new Building(10, elevators, new EtaDispatchStrategy(), scheduler);
+
+        // 3 floors away at 1000 ms per floor against 7 floors at 100 ms
+        CompletableFuture<Elevator> call = building.callElevatorAsync(8, UP);
+        scheduler.runUntilIdle();
+
+        assertThat(call.join()).isSameAs(fast);
+    }
+
+    @Test
+    public void overlappingGroupsCompeteForCalls() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        Elevator lowRise = ElevatorFactory.createElevator("Low rise", 3, 1, 10, scheduler);
+        elevators.add(lowRise);
+        Elevator highRise = ElevatorFactory.createElevator("High rise", 20, 1, 20, scheduler);
+        elevators.add(highRise);
+        building = new Building(20, elevators);
+
+        // the high-rise car reaches further up, but the low-rise one is waiting right there
+        CompletableFuture<Elevator> up = building.callElevatorAsync(3, UP);
+        scheduler.runUntilIdle();
+        CompletableFuture<Elevator> down = building.callElevatorAsync(9, DOWN);
+        scheduler.runUntilIdle();
+
+        assertThat(up.join()).isSameAs(lowRise);
+        assertThat(down.join()).isSameAs(lowRise);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void singleStrategyCannotDispatchElevatorsServingDifferentFloors() {
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        elevators.add(ElevatorFactory.createElevator("Parking", 1, 1, 3, scheduler));
+        elevators.add(ElevatorFactory.createElevator("Main", 1, 1, 10, scheduler));
+        new Building(10, elevators, new NearestCarDispatchStrategy(), scheduler);
+    }
+
+    @Test
+    public void sharedExecutorElevatorCarriesPassenger() throws InterruptedException {
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, 3, ExecutionMode.SHARED_EXECUTOR);
+        building = new Building(3, Collections.singleton(elevator));
+        building.callElevator(3, DOWN).arrivalAt(3).join();
+        elevator.requestFloor(2);
+        assertThat(elevator.awaitIdle(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(elevator.currentFloor()).isEqualTo(2);
+    }
+
+    @Test
+    public void virtualThreadElevatorsCarryPassenger() throws InterruptedException {
+        Assume.assumeTrue(virtualThreadsSupported());
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        elevators.add(ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, 10, ExecutionMode.VIRTUAL_THREAD, CLOCK));
+        elevators.add(ElevatorFactory.createElevator(ELEVATOR_2, 10, 1, 10, ExecutionMode.VIRTUAL_THREAD, CLOCK));
+        building = new Building(10, elevators, new NearestCarDispatchStrategy(), CLOCK);
+
+        Elevator elevator = building.callElevator(3, UP);
+        elevator.arrivalAt(3).join();
+        elevator.requestFloor(7);
+
+        assertThat(elevator.awaitIdle(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(elevator.currentFloor()).isEqualTo(7);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void virtualThreadsNeedJava21() {
+        Assume.assumeTrue(!virtualThreadsSupported());
+        ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, 10, ExecutionMode.VIRTUAL_THREAD);
+    }
+
+    private static boolean virtualThreadsSupported() {
+        try {
+            // throws on Java 19 and 20 unless the preview is enabled
+            Thread.class.getMethod("ofVirtual").invoke(null);
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void shutdownRejectsNewCallsAndCancelsWaitingOnes() throws InterruptedException {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        building = new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+        building.callElevatorAsync(10, UP);
+        // the only elevator is busy going up to 10, so this call waits
+        CompletableFuture<Elevator> waiting = building.callElevatorAsync(5, DOWN);
+
+        building.shutdown();
+
+        assertThat(building.awaitTermination(0, TimeUnit.SECONDS)).isTrue();
+        assertThat(waiting.isCompletedExceptionally()).isTrue();
+        try {
+            building.callElevatorAsync(2, UP);
+            fail("calls must be rejected after shutdown");
+        } catch (IllegalStateException expected) {
         }
     }
 
+    @Test
+    public void shutdownFailsFuturesOfCallsNotPickedUpYet() throws InterruptedException {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator(ELEVATOR_1, 1, 1, NUMBER_OF_FLOORS, scheduler);
+        building = new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+        CompletableFuture<Elevator> pickedUp = building.pickUpAsync(new HallCall(10, DOWN));
+        scheduler.runFor(300);
+        CompletableFuture<Void> arrival = elevator.arrivalAt(10);
+
+        building.shutdown();
+
+        assertThat(pickedUp.isCompletedExceptionally()).isTrue();
+        assertThat(arrival.isCompletedExceptionally()).isTrue();
+        assertThat(elevator.snapshot().getPendingStopsCount()).isEqualTo(0);
+        assertThat(elevator.isBusy()).isFalse();
+    }
+
     private HashSet<Elevator> createElevatorsWithFloors(int... floor) {
         HashSet<Elevator> elevators = new HashSet<Elevator>();
         for (int i = 0; i < floor.length; i++) {
-            Elevator elevator = ElevatorFactory.createElevator("Elevator " + (i + 1), floor[i], 1, NUMBER_OF_FLOORS);
+            Elevator elevator = ElevatorFactory.createElevator("Elevator " + (i + 1), floor[i], 1, NUMBER_OF_FLOORS, CLOCK);
             RecorderFloorListener listener = new RecorderFloorListener();
             elevator.setFloorListener(listener);
             elevators.add(elevator);
@@ -260,7 +701,7 @@ public class BuildingTest {
      */
     private void initBuildingWithElevatorsAtFloors(int... elevatorFloors) {
         HashSet<Elevator> elevators = createElevatorsWithFloors(elevatorFloors);
-        building = new Building(NUMBER_OF_FLOORS, elevators);
+        building = new Building(NUMBER_OF_FLOORS, elevators, new NearestCarDispatchStrategy(), CLOCK);
         LOG.debug("Created building with " + NUMBER_OF_FLOORS + " floors and elevators at " + Arrays.toString(elevatorFloors));
     }
 }
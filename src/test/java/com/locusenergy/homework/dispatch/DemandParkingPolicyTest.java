@@ -0,0 +1,56 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.internal.ElevatorFactory;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static com.locusenergy.homework.Direction.DOWN;
+import static com.locusenergy.homework.Direction.UP;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DemandParkingPolicyTest {
+
+    private final DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+    private final Elevator first = ElevatorFactory.createElevator("Elevator 1", 5, 1, 20, scheduler);
+    private final Elevator second = ElevatorFactory.createElevator("Elevator 2", 5, 1, 20, scheduler);
+    private final Set<Elevator> elevators = new LinkedHashSet<Elevator>();
+
+    {
+        elevators.add(first);
+        elevators.add(second);
+    }
+
+    @Test
+    public void idleElevatorsAreSpreadOverBusiestFloors() {
+        DemandParkingPolicy policy = new DemandParkingPolicy(60000);
+        policy.callMade(new HallCall(1, UP), 1000);
+        policy.callMade(new HallCall(1, UP), 2000);
+        policy.callMade(new HallCall(12, DOWN), 3000);
+
+        assertThat(policy.selectParkingFloor(first, elevators, 4000)).isEqualTo(1);
+        first.park(1);
+        assertThat(policy.selectParkingFloor(second, elevators, 4000)).isEqualTo(12);
+    }
+
+    @Test
+    public void oldCallsAreForgottenAndFallbackDecides() {
+        DemandParkingPolicy policy = new DemandParkingPolicy(60000, new HomeFloorParkingPolicy(10));
+        policy.callMade(new HallCall(1, UP), 1000);
+        assertThat(policy.getRecentCalls(1)).isEqualTo(1);
+
+        assertThat(policy.selectParkingFloor(first, elevators, 61000)).isEqualTo(10);
+        assertThat(policy.getRecentCalls(1)).isEqualTo(0);
+    }
+
+    @Test
+    public void homeFloorTakenByAnotherElevatorIsSkipped() {
+        HomeFloorParkingPolicy policy = new HomeFloorParkingPolicy(5, 15);
+
+        assertThat(policy.selectParkingFloor(first, elevators, 0)).isEqualTo(15);
+    }
+}
@@ -0,0 +1,42 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.internal.ElevatorFactory;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DestinationDispatchStrategyTest {
+
+    private final DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+    private final Elevator elevator = ElevatorFactory.createElevator("Elevator 1", 1, 1, 10, scheduler);
+    private final DestinationDispatchStrategy strategy = new DestinationDispatchStrategy();
+
+    @Test
+    public void plannedStopIsKeptWhenElevatorPassesTheFloor() {
+        strategy.stateChanged(elevator);
+        // the passenger at floor 6 goes down to 3, so the elevator passes floor 3 on its way up
+        elevator.requestPickup(6);
+        strategy.callAssigned(new HallCall(6, 3), elevator);
+        runUntilStoppedAt(6);
+
+        assertThat(strategy.hasPlannedStop(elevator, 6)).isFalse();
+        assertThat(strategy.hasPlannedStop(elevator, 3)).isTrue();
+
+        elevator.requestFloors(3, 1);
+        runUntilStoppedAt(3);
+
+        assertThat(strategy.hasPlannedStop(elevator, 3)).isFalse();
+    }
+
+    private void runUntilStoppedAt(int floor) {
+        strategy.stateChanged(elevator);
+        for (int step = 0; elevator.currentFloor() != floor || elevator.snapshot().hasPendingStopAt(floor); step++) {
+            assertThat(step).isLessThan(100);
+            scheduler.runFor(100);
+            strategy.stateChanged(elevator);
+        }
+    }
+}
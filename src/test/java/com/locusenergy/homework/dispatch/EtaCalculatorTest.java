@@ -0,0 +1,33 @@
+package com.locusenergy.homework.dispatch;
+
+import com.locusenergy.homework.ElevatorState;
+import org.junit.Test;
+
+import static com.locusenergy.homework.Direction.UP;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EtaCalculatorTest {
+
+    private final EtaCalculator calculator = new EtaCalculator(100, 10);
+
+    @Test
+    public void idleElevatorOnlyTravels() {
+        ElevatorState idle = new ElevatorState(3, null, new int[0]);
+        assertThat(calculator.estimate(idle, 10)).isEqualTo(700);
+        assertThat(calculator.estimate(idle, 3)).isEqualTo(0);
+    }
+
+    @Test
+    public void floorAheadIsReachedAfterStopsOnTheWay() {
+        ElevatorState goingUp = new ElevatorState(3, UP, new int[]{5, 8});
+        // 3 floors and a stop at 5
+        assertThat(calculator.estimate(goingUp, 6)).isEqualTo(310);
+    }
+
+    @Test
+    public void floorBehindIsReachedAfterServingAllStopsAhead() {
+        ElevatorState goingUp = new ElevatorState(3, UP, new int[]{1, 5, 8});
+        // up to 8 stopping at 5 and 8, then down to 2
+        assertThat(calculator.estimate(goingUp, 2)).isEqualTo(500 + 20 + 600);
+    }
+}
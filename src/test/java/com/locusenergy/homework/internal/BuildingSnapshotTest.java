@@ -0,0 +1,125 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorGroup;
+import com.locusenergy.homework.dispatch.EtaDispatchStrategy;
+import com.locusenergy.homework.dispatch.NearestCarDispatchStrategy;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BuildingSnapshotTest {
+
+    private static final int NUMBER_OF_FLOORS = 20;
+
+    @Test
+    public void restoredBuildingContinuesFromSavedState() throws IOException {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        Elevator first = ElevatorFactory.createElevator("Elevator 1", 1, 1, NUMBER_OF_FLOORS, scheduler);
+        elevators.add(first);
+        elevators.add(ElevatorFactory.createElevator("Elevator 2", 10, 1, NUMBER_OF_FLOORS, scheduler));
+        Building building = new Building(NUMBER_OF_FLOORS, elevators, new NearestCarDispatchStrategy(), scheduler);
+        first.requestFloor(8);
+        first.setCapacity(4);
+        first.board(15);
+        building.callElevatorAsync(12, Direction.DOWN);
+        scheduler.runFor(300);
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        BuildingSnapshot.write(building, snapshot);
+        DiscreteEventScheduler restoredScheduler = new DiscreteEventScheduler();
+        Building restored = BuildingSnapshot.restore(new ByteArrayInputStream(snapshot.toByteArray()),
+                new NearestCarDispatchStrategy(), restoredScheduler);
+
+        assertThat(restored.getNumberOfFloors()).isEqualTo(NUMBER_OF_FLOORS);
+        assertThat(statesByName(restored)).isEqualTo(statesByName(building));
+        scheduler.runUntilIdle();
+        restoredScheduler.runUntilIdle();
+        assertThat(statesByName(restored)).isEqualTo(statesByName(building));
+    }
+
+    @Test
+    public void expressRunIsRestoredWithStopsPutAside() throws IOException {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator("Elevator 1", 1, 1, NUMBER_OF_FLOORS, scheduler);
+        Building building = new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator),
+                new NearestCarDispatchStrategy(), scheduler);
+        elevator.requestFloors(4, 6);
+        scheduler.runFor(150);
+        elevator.moveElevator(15);
+        scheduler.runFor(300);
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        BuildingSnapshot.write(building, snapshot);
+        DiscreteEventScheduler restoredScheduler = new DiscreteEventScheduler();
+        Building restored = BuildingSnapshot.restore(new ByteArrayInputStream(snapshot.toByteArray()),
+                new NearestCarDispatchStrategy(), restoredScheduler);
+
+        assertThat(statesByName(restored)).isEqualTo(statesByName(building));
+        scheduler.runUntilIdle();
+        restoredScheduler.runUntilIdle();
+        assertThat(statesByName(restored)).isEqualTo(statesByName(building));
+        assertThat(restored.getElevators().iterator().next().currentFloor()).isEqualTo(4);
+    }
+
+    @Test
+    public void groupsAreRestoredWithTheirStrategies() throws IOException {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Set<Elevator> low = new HashSet<Elevator>();
+        low.add(ElevatorFactory.createElevator("Low 1", 1, 1, 10, scheduler));
+        low.add(ElevatorFactory.createElevator("Low 2", 5, 1, 10, scheduler));
+        Elevator shuttle = ElevatorFactory.createElevator("Shuttle", 1, 1, NUMBER_OF_FLOORS, scheduler);
+        Building building = new Building(NUMBER_OF_FLOORS, Arrays.asList(
+                new ElevatorGroup("low", low, new NearestCarDispatchStrategy()),
+                new ElevatorGroup("sky", Collections.singleton(shuttle), new EtaDispatchStrategy(), 1, 15)), scheduler);
+        building.callElevatorAsync(15, Direction.DOWN);
+        building.callElevatorAsync(7, Direction.UP);
+        scheduler.runFor(300);
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        BuildingSnapshot.write(building, snapshot);
+        DiscreteEventScheduler restoredScheduler = new DiscreteEventScheduler();
+        Building restored = BuildingSnapshot.restore(new ByteArrayInputStream(snapshot.toByteArray()),
+                new NearestCarDispatchStrategy(), restoredScheduler);
+
+        List<ElevatorGroup> groups = restored.getGroups();
+        assertThat(groups).hasSize(2);
+        assertThat(groups.get(0).getName()).isEqualTo("low");
+        assertThat(groups.get(0).getElevators()).hasSize(2);
+        assertThat(groups.get(1).getDispatchStrategy()).isInstanceOf(EtaDispatchStrategy.class);
+        assertThat(groups.get(1).serves(15)).isTrue();
+        assertThat(groups.get(1).serves(14)).isFalse();
+        assertThat(statesByName(restored)).isEqualTo(statesByName(building));
+        scheduler.runUntilIdle();
+        restoredScheduler.runUntilIdle();
+        assertThat(statesByName(restored)).isEqualTo(statesByName(building));
+    }
+
+    @Test(expected = IOException.class)
+    public void garbageIsRejected() throws IOException {
+        BuildingSnapshot.restore(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}), new NearestCarDispatchStrategy());
+    }
+
+    private static Map<String, String> statesByName(Building building) {
+        Map<String, String> states = new HashMap<String, String>();
+        for (Elevator elevator : building.getElevators()) {
+            states.put(elevator.getName(), elevator.snapshot().toString());
+        }
+        return states;
+    }
+}
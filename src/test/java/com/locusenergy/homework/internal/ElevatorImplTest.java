@@ -0,0 +1,100 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.ElevatorState;
+import com.locusenergy.homework.InvalidRequest;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ElevatorImplTest {
+
+    @Test
+    public void requestWaitingInInboxKeepsElevatorFromBeingIdle() throws InterruptedException {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        final ElevatorImpl elevator = (ElevatorImpl) ElevatorFactory.createElevator("Elevator 1", 1, 1, 10, scheduler);
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch requested = new CountDownLatch(1);
+        Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                elevator.getLock().lock();
+                try {
+                    locked.countDown();
+                    requested.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    elevator.getLock().unlock();
+                }
+            }
+        });
+        holder.start();
+        assertThat(locked.await(1, TimeUnit.MINUTES)).isTrue();
+
+        // cannot take the lock, so the floor stays in the inbox until the next step
+        elevator.requestFloor(5);
+        requested.countDown();
+        holder.join();
+
+        assertThat(elevator.isBusy()).isFalse();
+        assertThat(elevator.awaitIdle(10, TimeUnit.MILLISECONDS)).isFalse();
+        scheduler.runUntilIdle();
+        assertThat(elevator.awaitIdle(10, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(elevator.currentFloor()).isEqualTo(5);
+    }
+
+    @Test
+    public void stateIsPublishedOnlyWhenItChanges() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        ElevatorImpl elevator = (ElevatorImpl) ElevatorFactory.createElevator("Elevator 1", 1, 1, 10, scheduler);
+        elevator.requestFloor(5);
+        ElevatorState requested = elevator.snapshot();
+
+        elevator.requestFloor(5);
+
+        assertThat(elevator.snapshot()).isSameAs(requested);
+        assertThat(requested.getPendingStopsCount()).isEqualTo(1);
+        assertThat(requested.getPendingStop(0)).isEqualTo(5);
+    }
+
+    @Test
+    public void arrivalIsEstimatedWithTheStepTimeOfTheElevator() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator slow = ElevatorFactory.createElevator("Slow", 1, 1, 10, 300, scheduler);
+
+        assertThat(slow.estimateArrivalMillis(5)).isEqualTo(1200);
+        slow.requestFloor(5);
+        scheduler.runFor(1199);
+        assertThat(slow.currentFloor()).isEqualTo(4);
+        scheduler.runFor(1);
+        assertThat(slow.currentFloor()).isEqualTo(5);
+    }
+
+    @Test
+    public void rejectedBoardingLeavesNoPassengerBehind() {
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        ElevatorImpl elevator = (ElevatorImpl) ElevatorFactory.createElevator("Elevator 1", 1, 1, 10, scheduler);
+        assertThat(elevator.board(5)).isTrue();
+        elevator.shutdown();
+
+        try {
+            elevator.board(7);
+            fail("Boarding a shut down elevator must fail");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            elevator.board(11);
+            fail("Boarding to a floor out of range must fail");
+        } catch (InvalidRequest expected) {
+        }
+
+        assertThat(elevator.snapshot().getLoad()).isEqualTo(1);
+        assertThat(elevator.getAlightingCount(7)).isEqualTo(0);
+    }
+}
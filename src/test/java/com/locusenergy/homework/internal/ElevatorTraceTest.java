@@ -0,0 +1,64 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ElevatorTraceTest {
+
+    @After
+    public void disableTrace() {
+        ElevatorTrace.disable();
+    }
+
+    @Test
+    public void onlyLastEventsAreKept() throws IOException {
+        ElevatorTrace.enable(3);
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator("Traced", 1, 1, 10, scheduler);
+
+        elevator.requestFloor(3);
+        scheduler.runUntilIdle();
+
+        StringBuilder dump = new StringBuilder();
+        ElevatorTrace.dump(dump);
+        String[] lines = dump.toString().split("\n");
+        // capacity is rounded up to 4
+        assertThat(lines).hasSize(4);
+        assertThat(lines[0]).endsWith(" Traced MOVED 2");
+        assertThat(lines[1]).endsWith(" Traced MOVED 3");
+        assertThat(lines[2]).endsWith(" Traced STOPPED 3");
+        assertThat(lines[3]).endsWith(" Traced RELEASED 3");
+    }
+
+    @Test
+    public void nothingIsRecordedWhenDisabled() throws IOException {
+        Elevator elevator = ElevatorFactory.createElevator("Not traced", 1, 1, 10, new DiscreteEventScheduler());
+        elevator.requestFloor(3);
+
+        StringBuilder dump = new StringBuilder();
+        ElevatorTrace.dump(dump);
+        assertThat(dump.toString()).isEmpty();
+    }
+
+    @Test
+    public void nameIsForgottenWhenElevatorShutsDown() throws IOException {
+        ElevatorTrace.enable(16);
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        ElevatorImpl elevator = (ElevatorImpl) ElevatorFactory.createElevator("Gone", 1, 1, 10, scheduler);
+        elevator.requestFloor(2);
+        scheduler.runUntilIdle();
+
+        elevator.shutdown();
+
+        StringBuilder dump = new StringBuilder();
+        ElevatorTrace.dump(dump);
+        assertThat(dump.toString()).doesNotContain("Gone")
+                .contains(" #" + elevator.getTraceId() + " RELEASED 2");
+    }
+}
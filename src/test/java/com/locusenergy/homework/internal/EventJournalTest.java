@@ -0,0 +1,100 @@
+package com.locusenergy.homework.internal;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.dispatch.NearestCarDispatchStrategy;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EventJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void detachJournal() {
+        ElevatorTrace.detachJournal();
+    }
+
+    @Test
+    public void eventsAreReadBackAcrossSegments() throws IOException {
+        File directory = new File(folder.getRoot(), "journal");
+        // 4 records per segment
+        EventJournal journal = EventJournal.open(directory, 4 * EventJournal.RECORD_SIZE + 1);
+        ElevatorTrace.attachJournal(journal);
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Elevator elevator = ElevatorFactory.createElevator("Journaled", 1, 1, 10, scheduler);
+        Building building = new Building(10, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+
+        building.callElevatorAsync(new HallCall(3, 5));
+        scheduler.runUntilIdle();
+        ElevatorTrace.detachJournal();
+        journal.close();
+
+        List<String> events = new ArrayList<String>();
+        List<Long> times = new ArrayList<Long>();
+        EventJournalReader reader = new EventJournalReader(directory);
+        while (reader.next()) {
+            times.add(reader.getTimeMillis());
+            events.add(reader.getType() + " " + reader.getElevatorName() + " " + reader.getFloor()
+                    + (reader.getDirection() != null ? " " + reader.getDirection() + " " + reader.getDestinationFloor() : ""));
+        }
+        reader.close();
+        assertThat(events).containsExactly(
+                "HALL_CALL null 3 " + Direction.UP + " 5",
+                "ASSIGNED Journaled 3 " + Direction.UP + " 5",
+                "REQUESTED Journaled 3",
+                "MOVED Journaled 2",
+                "MOVED Journaled 3",
+                "STOPPED Journaled 3",
+                "RELEASED Journaled 3");
+        assertThat(EventJournal.segmentFile(directory, 1).exists()).isTrue();
+        // virtual time of the simulation, not the wall clock
+        assertThat(times.get(0)).isEqualTo(0L);
+        assertThat(times.get(times.size() - 1)).isGreaterThan(0L).isLessThanOrEqualTo(scheduler.currentTimeMillis());
+    }
+
+    @Test
+    public void unfinishedRecordIsSkipped() throws IOException {
+        File directory = new File(folder.getRoot(), "journal");
+        EventJournal journal = EventJournal.open(directory, 1024);
+        journal.append(1, ElevatorTrace.EventType.MOVED, 1, 2, null, 0);
+        journal.append(2, ElevatorTrace.EventType.MOVED, 1, 3, null, 0);
+        journal.append(3, ElevatorTrace.EventType.STOPPED, 1, 3, null, 0);
+        journal.close();
+        // as if the writer of the second record had not written its type yet
+        RandomAccessFile segment = new RandomAccessFile(EventJournal.segmentFile(directory, 0), "rw");
+        segment.seek(EventJournal.RECORD_SIZE + 8);
+        segment.write(0);
+        segment.close();
+
+        List<Long> times = new ArrayList<Long>();
+        EventJournalReader reader = new EventJournalReader(directory);
+        while (reader.next()) {
+            times.add(reader.getTimeMillis());
+        }
+        reader.close();
+        assertThat(times).containsExactly(1L, 3L);
+    }
+
+    @Test(expected = IOException.class)
+    public void existingJournalIsNotOverwritten() throws IOException {
+        File directory = folder.getRoot();
+        EventJournal.open(directory, 1024).close();
+        EventJournal.open(directory, 1024);
+    }
+}
@@ -0,0 +1,50 @@
+package com.locusenergy.homework.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FloorInboxTest {
+
+    @Test
+    public void floorsAddedConcurrentlyAreAllDrained() throws InterruptedException {
+        final FloorInbox inbox = new FloorInbox(-5, 200);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int first = -5 + t;
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int floor = first; floor <= 200; floor += 4) {
+                        inbox.add(floor);
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        FloorSet floors = new FloorSet(-5, 200);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        inbox.drainTo(floors);
+
+        assertThat(floors.size()).isEqualTo(206);
+        assertThat(inbox.hasPending()).isFalse();
+        assertThat(inbox.drainTo(floors)).isEqualTo(0);
+    }
+
+    @Test
+    public void repeatedFloorIsDrainedOnce() {
+        FloorInbox inbox = new FloorInbox(1, 10);
+        inbox.add(3);
+        inbox.add(3);
+        FloorSet floors = new FloorSet(1, 10);
+
+        assertThat(inbox.drainTo(floors)).isEqualTo(1);
+        assertThat(floors.contains(3)).isTrue();
+    }
+}
@@ -0,0 +1,71 @@
+package com.locusenergy.homework.internal;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FloorSetTest {
+
+    private final FloorSet floors = new FloorSet(-2, 150);
+
+    @Test
+    public void addRemoveAndContains() {
+        assertThat(floors.add(5)).isTrue();
+        assertThat(floors.add(5)).isFalse();
+        assertThat(floors.contains(5)).isTrue();
+        assertThat(floors.contains(6)).isFalse();
+        assertThat(floors.contains(1000)).isFalse();
+        assertThat(floors.size()).isEqualTo(1);
+
+        assertThat(floors.remove(5)).isTrue();
+        assertThat(floors.remove(5)).isFalse();
+        assertThat(floors.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void higherAndLowerScanAcrossWords() {
+        floors.add(-2);
+        floors.add(70);
+        floors.add(150);
+
+        assertThat(floors.higher(-10)).isEqualTo(-2);
+        assertThat(floors.higher(-2)).isEqualTo(70);
+        assertThat(floors.higher(70)).isEqualTo(150);
+        assertThat(floors.higher(150)).isEqualTo(FloorSet.NONE);
+
+        assertThat(floors.lower(1000)).isEqualTo(150);
+        assertThat(floors.lower(150)).isEqualTo(70);
+        assertThat(floors.lower(70)).isEqualTo(-2);
+        assertThat(floors.lower(-2)).isEqualTo(FloorSet.NONE);
+
+        assertThat(floors.first()).isEqualTo(-2);
+        assertThat(floors.last()).isEqualTo(150);
+        assertThat(floors.toString()).isEqualTo("{ -2 70 150 }");
+    }
+
+    @Test
+    public void emptySetHasNoFloors() {
+        assertThat(floors.first()).isEqualTo(FloorSet.NONE);
+        assertThat(floors.last()).isEqualTo(FloorSet.NONE);
+        assertThat(floors.higher(0)).isEqualTo(FloorSet.NONE);
+        assertThat(floors.lower(0)).isEqualTo(FloorSet.NONE);
+    }
+
+    @Test
+    public void modCountChangesOnlyWithTheSet() {
+        int initial = floors.getModCount();
+        floors.add(5);
+        floors.add(5);
+        floors.remove(6);
+        assertThat(floors.getModCount()).isEqualTo(initial + 1);
+
+        floors.clear();
+        floors.clear();
+        assertThat(floors.getModCount()).isEqualTo(initial + 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void floorOutOfRangeCannotBeAdded() {
+        floors.add(151);
+    }
+}
@@ -0,0 +1,36 @@
+package com.locusenergy.homework.metrics;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class HistogramTest {
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(1000);
+        assertThat(snapshot.getMax()).isEqualTo(1000);
+        assertThat(snapshot.getMean()).isEqualTo(500.5);
+        assertThat(snapshot.getValueAtPercentile(50)).isGreaterThanOrEqualTo(500).isLessThanOrEqualTo(532);
+        assertThat(snapshot.getValueAtPercentile(99)).isGreaterThanOrEqualTo(990).isLessThanOrEqualTo(1000);
+        assertThat(snapshot.getValueAtPercentile(0)).isEqualTo(1);
+    }
+
+    @Test
+    public void everyValueGoesToBucketWhichCoversIt() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            assertThat(bucket).isLessThan(Histogram.BUCKETS);
+            assertThat(Histogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+            if (bucket > 0) {
+                assertThat(Histogram.highestValueOf(bucket - 1)).isLessThan(value);
+            }
+        }
+    }
+}
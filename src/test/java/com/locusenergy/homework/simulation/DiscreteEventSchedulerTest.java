@@ -0,0 +1,57 @@
+package com.locusenergy.homework.simulation;
+
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.RecorderFloorListener;
+import com.locusenergy.homework.internal.ElevatorFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.locusenergy.homework.ElevatorAssert.assertThat;
+import static com.locusenergy.homework.RecorderFloorListenerAssert.assertThat;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DiscreteEventSchedulerTest {
+
+    private final DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+
+    @Test
+    public void eventsAreRunInTimeOrderAndClockJumpsToEachEvent() {
+        final List<Long> times = new ArrayList<Long>();
+        Runnable recordTime = new Runnable() {
+            @Override
+            public void run() {
+                times.add(scheduler.currentTimeMillis());
+            }
+        };
+        scheduler.schedule(300, recordTime);
+        scheduler.schedule(100, recordTime);
+        scheduler.schedule(200, recordTime);
+
+        scheduler.runUntil(250);
+        assertThat(times).containsExactly(100L, 200L);
+        assertThat(scheduler.currentTimeMillis()).isEqualTo(250);
+
+        scheduler.runUntilIdle();
+        assertThat(times).containsExactly(100L, 200L, 300L);
+        assertThat(scheduler.getPendingEventsCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void elevatorMovesInVirtualTime() {
+        Elevator elevator = ElevatorFactory.createElevator("Elevator 1", 3, 1, 10, scheduler);
+        RecorderFloorListener listener = new RecorderFloorListener();
+        elevator.setFloorListener(listener);
+
+        elevator.requestFloor(5);
+        elevator.requestFloor(1);
+        scheduler.runUntilIdle();
+
+        assertThat(elevator).hasCurrentFloor(1);
+        assertThat(elevator.isBusy()).isFalse();
+        assertThat(listener).onlyVisited(4, 5, 4, 3, 2, 1);
+        // 6 floors moved, 2 stops and 1 final step to release the elevator
+        assertThat(scheduler.currentTimeMillis()).isEqualTo(900);
+    }
+}
@@ -0,0 +1,109 @@
+package com.locusenergy.homework.simulation;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Direction;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.HallCall;
+import com.locusenergy.homework.InvalidRequest;
+import com.locusenergy.homework.dispatch.NearestCarDispatchStrategy;
+import com.locusenergy.homework.internal.ElevatorFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class FleetTest {
+
+    private static final int NUMBER_OF_FLOORS = 10;
+
+    private final Fleet fleet = new Fleet(2);
+
+    @After
+    public void shutdownFleet() throws InterruptedException {
+        fleet.shutdown();
+        assertThat(fleet.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    }
+
+    @Test
+    public void everyBuildingServesItsOwnCalls() throws Exception {
+        List<Integer> buildingIds = new ArrayList<Integer>();
+        for (int i = 0; i < 5; i++) {
+            buildingIds.add(fleet.addBuilding(new Fleet.BuildingFactory() {
+                @Override
+                public Building createBuilding(Scheduler scheduler) {
+                    Elevator elevator = ElevatorFactory.createElevator("Elevator 1", 1, 1, NUMBER_OF_FLOORS, scheduler);
+                    return new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+                }
+            }));
+        }
+        List<CompletableFuture<Elevator>> calls = new ArrayList<CompletableFuture<Elevator>>();
+        for (int buildingId : buildingIds) {
+            calls.add(fleet.callElevatorAsync(buildingId, new HallCall(buildingId + 2, Direction.UP)));
+        }
+
+        fleet.runUntilIdle();
+
+        for (int i = 0; i < calls.size(); i++) {
+            assertThat(calls.get(i).get().currentFloor()).isEqualTo(buildingIds.get(i) + 2);
+        }
+        assertThat(fleet.getBuildingsCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void invalidCallCompletesExceptionally() throws Exception {
+        int buildingId = fleet.addBuilding(new Fleet.BuildingFactory() {
+            @Override
+            public Building createBuilding(Scheduler scheduler) {
+                return new Building(NUMBER_OF_FLOORS, Collections.<Elevator>emptySet());
+            }
+        });
+        try {
+            fleet.callElevatorAsync(buildingId, new HallCall(NUMBER_OF_FLOORS + 1, Direction.DOWN)).get();
+            fail("floor is out of the building");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(InvalidRequest.class);
+        }
+    }
+
+    @Test
+    public void failedBuildingKeepsItsId() throws Exception {
+        Fleet fleet = new Fleet(1);
+        try {
+            int broken = fleet.addBuilding(new Fleet.BuildingFactory() {
+                @Override
+                public Building createBuilding(Scheduler scheduler) {
+                    throw new IllegalArgumentException("broken factory");
+                }
+            });
+            int working = fleet.addBuilding(new Fleet.BuildingFactory() {
+                @Override
+                public Building createBuilding(Scheduler scheduler) {
+                    Elevator elevator = ElevatorFactory.createElevator("Elevator 1", 1, 1, NUMBER_OF_FLOORS, scheduler);
+                    return new Building(NUMBER_OF_FLOORS, Collections.singleton(elevator), new NearestCarDispatchStrategy(), scheduler);
+                }
+            });
+            try {
+                fleet.callElevatorAsync(broken, new HallCall(2, Direction.UP)).get();
+                fail("building could not be created");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+            }
+            CompletableFuture<Elevator> call = fleet.callElevatorAsync(working, new HallCall(3, Direction.UP));
+
+            fleet.runUntilIdle();
+
+            assertThat(call.get().currentFloor()).isEqualTo(3);
+        } finally {
+            fleet.shutdown();
+            assertThat(fleet.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        }
+    }
+}
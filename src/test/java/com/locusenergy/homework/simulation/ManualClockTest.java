@@ -0,0 +1,63 @@
+package com.locusenergy.homework.simulation;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ManualClockTest {
+
+    private final ManualClock clock = new ManualClock(1000);
+
+    @Test
+    public void sleepersWakeUpExactlyAtTheirDeadline() throws InterruptedException {
+        AtomicLong shortWakeUp = new AtomicLong();
+        AtomicLong longWakeUp = new AtomicLong();
+        Thread shortSleeper = startSleeping(100, shortWakeUp);
+        Thread longSleeper = startSleeping(200, longWakeUp);
+
+        clock.advance(99);
+        shortSleeper.join(50);
+        assertThat(shortSleeper.isAlive()).isTrue();
+
+        clock.advance(1);
+        shortSleeper.join(TimeUnit.MINUTES.toMillis(1));
+        assertThat(shortSleeper.isAlive()).isFalse();
+        assertThat(shortWakeUp.get()).isEqualTo(1100);
+        assertThat(longSleeper.isAlive()).isTrue();
+
+        clock.advance(100);
+        longSleeper.join(TimeUnit.MINUTES.toMillis(1));
+        assertThat(longSleeper.isAlive()).isFalse();
+        assertThat(longWakeUp.get()).isEqualTo(1200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void clockCannotGoBack() {
+        clock.advance(-1);
+    }
+
+    /**
+     * @return thread which is already waiting in {@link ManualClock#sleep(long)}
+     */
+    private Thread startSleeping(final long millis, final AtomicLong wakeUpTime) throws InterruptedException {
+        Thread sleeper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    clock.sleep(millis);
+                    wakeUpTime.set(clock.currentTimeMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        sleeper.start();
+        while (sleeper.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        return sleeper;
+    }
+}
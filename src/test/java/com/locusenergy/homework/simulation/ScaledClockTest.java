@@ -0,0 +1,33 @@
+package com.locusenergy.homework.simulation;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ScaledClockTest {
+
+    private static final int FACTOR = 100;
+
+    private final ScaledClock clock = new ScaledClock(FACTOR);
+
+    @Test
+    public void sleepAndElapsedTimeAreBothScaled() throws InterruptedException {
+        long wallStart = System.nanoTime();
+        long clockStart = clock.currentTimeMillis();
+
+        // 10 ms of wall time
+        clock.sleep(1000);
+
+        long clockElapsed = clock.currentTimeMillis() - clockStart;
+        long wallElapsedMillis = (System.nanoTime() - wallStart) / 1000000;
+        // 1 ms of slack for rounding of each reading
+        assertThat(clockElapsed).isGreaterThanOrEqualTo(1000 - 1);
+        assertThat(clockElapsed).isLessThanOrEqualTo((wallElapsedMillis + 1) * FACTOR + 1);
+        assertThat(wallElapsedMillis).isGreaterThanOrEqualTo(1000 / FACTOR - 1).isLessThan(1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void factorMustBePositive() {
+        new ScaledClock(0);
+    }
+}
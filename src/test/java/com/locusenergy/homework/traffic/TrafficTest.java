@@ -0,0 +1,85 @@
+package com.locusenergy.homework.traffic;
+
+import com.locusenergy.homework.Building;
+import com.locusenergy.homework.Elevator;
+import com.locusenergy.homework.dispatch.NearestCarDispatchStrategy;
+import com.locusenergy.homework.internal.ElevatorFactory;
+import com.locusenergy.homework.simulation.DiscreteEventScheduler;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TrafficTest {
+
+    private static final int NUMBER_OF_FLOORS = 10;
+
+    @Test
+    public void sameSeedGivesSameTraffic() {
+        TrafficGenerator first = new TrafficGenerator(NUMBER_OF_FLOORS, TrafficPattern.LUNCH, 30, 42);
+        TrafficGenerator second = new TrafficGenerator(NUMBER_OF_FLOORS, TrafficPattern.LUNCH, 30, 42);
+        for (int i = 0; i < 100; i++) {
+            assertThat(second.next().toString()).isEqualTo(first.next().toString());
+        }
+    }
+
+    @Test
+    public void upPeakCallsComeMostlyFromLobby() {
+        TrafficGenerator generator = new TrafficGenerator(NUMBER_OF_FLOORS, TrafficPattern.UP_PEAK, 30, 1);
+        int fromLobby = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (generator.next().getHallCall().getFloor() == 1) {
+                fromLobby++;
+            }
+        }
+        assertThat(fromLobby).isGreaterThan(800).isLessThan(900);
+    }
+
+    @Test
+    public void callLogIsReadBackAsWritten() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        TrafficGenerator generator = new TrafficGenerator(NUMBER_OF_FLOORS, TrafficPattern.DOWN_PEAK, 60, 7);
+        CallLogWriter writer = new CallLogWriter(log);
+        int count = generator.generate(10 * 60 * 1000, writer);
+        writer.close();
+
+        TrafficGenerator expected = new TrafficGenerator(NUMBER_OF_FLOORS, TrafficPattern.DOWN_PEAK, 60, 7);
+        CallLogReader reader = new CallLogReader(new ByteArrayInputStream(log.toByteArray()));
+        List<String> calls = new ArrayList<String>();
+        TimedCall call;
+        while ((call = reader.read()) != null) {
+            assertThat(call.toString()).isEqualTo(expected.next().toString());
+            calls.add(call.toString());
+        }
+        assertThat(calls).hasSize(count);
+        assertThat(count).isGreaterThan(500);
+    }
+
+    @Test
+    public void replayServesAllCalls() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        CallLogWriter writer = new CallLogWriter(log);
+        int count = new TrafficGenerator(NUMBER_OF_FLOORS, TrafficPattern.UP_PEAK, 20, 3).generate(5 * 60 * 1000, writer);
+        writer.close();
+        DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+        Set<Elevator> elevators = new HashSet<Elevator>();
+        for (int i = 1; i <= 3; i++) {
+            elevators.add(ElevatorFactory.createElevator("Elevator " + i, 1, 1, NUMBER_OF_FLOORS, scheduler));
+        }
+        Building building = new Building(NUMBER_OF_FLOORS, elevators, new NearestCarDispatchStrategy(), scheduler);
+
+        int replayed = CallLogReplay.replay(new CallLogReader(new ByteArrayInputStream(log.toByteArray())), building, scheduler);
+
+        assertThat(replayed).isEqualTo(count);
+        for (Elevator elevator : elevators) {
+            assertThat(elevator.isBusy()).isFalse();
+        }
+    }
+}